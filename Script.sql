@@ -27,18 +27,37 @@ CREATE TABLE IF NOT EXISTS Cliente (
     email VARCHAR(100) NOT NULL,
     telefono VARCHAR(20) NOT NULL,
     dinero int NOT NULL,
-    CONSTRAINT chk_dinero_positivo CHECK (dinero >= 0)
+    CONSTRAINT chk_dinero_positivo CHECK (dinero >= 0),
+    -- Comprobación de emails repetidos en las altas (las que el filtro de Bloom no descarta)
+    INDEX idx_cliente_email (email)
 );
 
+-- En una base de datos ya creada:
+-- ALTER TABLE Cliente ADD INDEX idx_cliente_email (email);
+
 -- ======================================
 -- Tabla: Venta
 -- ======================================
 CREATE TABLE IF NOT EXISTS Venta (
     id_venta INT AUTO_INCREMENT PRIMARY KEY,
     id_cliente INT NOT NULL,
+    -- Total guardado al registrar la venta; NULL en ventas anteriores a la columna
+    total DECIMAL(10,2) NULL,
+    -- Momento en que se registró la venta
+    fecha DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    -- Consultas por rango de fechas; incluye el total para sumar los ingresos sin leer las filas
+    INDEX idx_venta_fecha (fecha, total),
     FOREIGN KEY (id_cliente) REFERENCES Cliente(id_cliente) ON DELETE CASCADE
 );
 
+-- En una base de datos ya creada:
+-- ALTER TABLE Venta ADD COLUMN total DECIMAL(10,2) NULL;
+-- y después "Rellenar y verificar los totales guardados" en Consultar ventas.
+-- ALTER TABLE Venta ADD COLUMN fecha DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+--     ADD INDEX idx_venta_fecha (fecha, total);
+-- (las ventas anteriores toman como fecha el momento del ALTER).
+-- No se particiona por mes: MySQL no admite claves foráneas en tablas particionadas.
+
 -- ======================================
     -- Tabla: DetalleVenta
     -- ======================================
@@ -52,6 +71,19 @@ CREATE TABLE IF NOT EXISTS DetalleVenta (
     FOREIGN KEY (id_producto) REFERENCES Producto(id_producto) ON DELETE CASCADE
 );
 
+-- ======================================
+-- Tabla: reserva_stock
+-- Unidades apartadas por los carritos abiertos hasta que caducan
+-- ======================================
+CREATE TABLE IF NOT EXISTS reserva_stock (
+    id_reserva BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id_producto INT NOT NULL,
+    cantidad INT NOT NULL CHECK (cantidad > 0),
+    caduca DATETIME(3) NOT NULL,
+    INDEX idx_reserva_caduca (caduca),
+    FOREIGN KEY (id_producto) REFERENCES Producto(id_producto) ON DELETE CASCADE
+);
+
 
 DELIMITER //
 CREATE PROCEDURE RegistrarDetalleVenta( 
@@ -62,26 +94,21 @@ CREATE PROCEDURE RegistrarDetalleVenta(
     OUT p_estado INT          
 )
 BEGIN
-    DECLARE stock_actual INT;
+    -- Descuento condicional: sin leer el stock antes, así dos ventas
+    -- simultáneas no pueden vender las mismas unidades
+    UPDATE producto 
+    SET stock = stock - p_cantidad 
+    WHERE id_producto = p_idProducto AND stock >= p_cantidad;
     
-    
-    SELECT stock INTO stock_actual 
-    FROM producto 
-    WHERE id_producto = p_idProducto;
-    
-    IF stock_actual IS NULL THEN
-        SET p_estado = -2;
-    ELSEIF stock_actual < p_cantidad THEN
-        SET p_estado = -1;
-    ELSE
+    IF ROW_COUNT() = 1 THEN
         INSERT INTO DetalleVenta (id_venta, id_producto, cantidad, precio_unitario)
         VALUES (p_idVenta, p_idProducto, p_cantidad, p_precioUnitario);
         
-        UPDATE producto 
-        SET stock = stock - p_cantidad 
-        WHERE id_producto = p_idProducto;
-        
         SET p_estado = 1;
+    ELSEIF EXISTS (SELECT 1 FROM producto WHERE id_producto = p_idProducto) THEN
+        SET p_estado = -1;
+    ELSE
+        SET p_estado = -2;
     END IF;
 END //
 DELIMITER ;
@@ -1,10 +1,15 @@
 package com.inventario;
 
+import java.sql.SQLException;
 import java.util.Scanner;
 
 import com.inventario.bbdd.ConexionBBDD;
+import com.inventario.clientes.ClientesBBDD;
 import com.inventario.clientes.GestionDeClientes;
+import com.inventario.metricas.Metricas;
 import com.inventario.productos.GestionDeProductos;
+import com.inventario.productos.ProductosBBDD;
+import com.inventario.productos.ReservasStock;
 import com.inventario.util.Util;
 import com.inventario.ventas.GestionVentas;
 
@@ -20,6 +25,21 @@ public class Main {
      */
     public static void menuPrincipal() {
         ConexionBBDD.iniciarConexion();
+        try {
+            ReservasStock.iniciar();
+        } catch (SQLException e) {
+            System.err.println("Error al cargar las reservas de stock: " + e.getMessage());
+        }
+        try {
+            ClientesBBDD.cargarIndice();
+        } catch (SQLException e) {
+            System.err.println("Error al cargar el índice de clientes: " + e.getMessage());
+        }
+        try {
+            ProductosBBDD.cargarIndices();
+        } catch (SQLException e) {
+            System.err.println("Error al cargar el índice de productos: " + e.getMessage());
+        }
         Scanner scanner = new Scanner(System.in);
         int opcion;
 
@@ -30,23 +50,27 @@ public class Main {
             System.out.println("2. Gestión de clientes");
             System.out.println("3. Registrar venta");
             System.out.println("4. Consultar ventas");
+            System.out.println("5. Métricas");
             System.out.println("0. Salir");
             System.out.println("=====================================");
             System.out.print("Selecciona una opción ");
 
-            opcion = Util.pedirNumeroConRango(scanner, "", 0, 4);
+            opcion = Util.pedirNumeroConRango(scanner, "", 0, 5);
 
             switch (opcion) {
                 case 1 -> GestionDeProductos.menuProductos(scanner);
                 case 2 -> GestionDeClientes.menuClientes(scanner);
                 case 3 -> GestionVentas.crearVenta(scanner);
                 case 4 -> GestionVentas.menuConsultasVentas(scanner);
+                case 5 -> Metricas.imprimirInforme();
                 case 0 -> System.out.println("\nSaliendo del programa...");
                 default -> System.out.println("Opción no válida.");
             }
         } while (opcion != 0);
 
         scanner.close();
+        ReservasStock.detener();
+        ConexionBBDD.cerrarConexion();
     }
 
     public static void main(String[] args) {
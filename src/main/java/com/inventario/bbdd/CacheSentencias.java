@@ -0,0 +1,289 @@
+package com.inventario.bbdd;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché LRU de sentencias preparadas de una conexión física.
+ * <p>
+ * Las sentencias se guardan por su texto SQL. Al cerrar una sentencia obtenida
+ * de la caché no se cierra la sentencia real, solo se limpian sus parámetros
+ * para que la siguiente llamada con el mismo SQL la reutilice sin volver a
+ * prepararla.
+ */
+class CacheSentencias {
+
+    /**
+     * Aciertos de todas las cachés del proceso.
+     */
+    static final LongAdder ACIERTOS = new LongAdder();
+
+    /**
+     * Fallos de todas las cachés del proceso.
+     */
+    static final LongAdder FALLOS = new LongAdder();
+
+    /**
+     * Conexión real sobre la que se preparan las sentencias.
+     */
+    private final Connection real;
+
+    /**
+     * Sentencias guardadas, en orden de último uso.
+     */
+    private final LinkedHashMap<String, Entrada> sentencias;
+
+    /**
+     * Crea una caché vacía.
+     *
+     * @param real   Conexión real del driver.
+     * @param tamano Número máximo de sentencias guardadas.
+     */
+    CacheSentencias(Connection real, int tamano) {
+        this.real = real;
+        this.sentencias = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                boolean eliminar = size() > tamano;
+                if (eliminar) {
+                    eldest.getValue().expulsar();
+                }
+                return eliminar;
+            }
+        };
+    }
+
+    /**
+     * Devuelve una sentencia preparada para el SQL indicado, reutilizando la de
+     * la caché si está libre.
+     *
+     * @param conexion      Conexión prestada que verá el código cliente.
+     * @param sql           Texto SQL.
+     * @param generatedKeys Valor de autoGeneratedKeys, o -1 si no se indicó.
+     * @return La sentencia preparada.
+     * @throws SQLException Si el driver no puede preparar la sentencia.
+     */
+    PreparedStatement preparar(Connection conexion, String sql, int generatedKeys) throws SQLException {
+        String clave = generatedKeys < 0 ? sql : sql + '\u0000' + generatedKeys;
+        Entrada entrada = sentencias.get(clave);
+        if (entrada != null && entrada.expulsada) {
+            sentencias.remove(clave);
+            entrada = null;
+        }
+
+        if (entrada != null && !entrada.enUso) {
+            ACIERTOS.increment();
+        } else {
+            FALLOS.increment();
+            PreparedStatement ps = generatedKeys < 0 ? real.prepareStatement(sql)
+                    : real.prepareStatement(sql, generatedKeys);
+
+            if (entrada != null) {
+                // Ya se está usando la misma sentencia en esta conexión: se entrega una sin caché
+                return ps;
+            }
+            entrada = new Entrada(ps);
+            sentencias.put(clave, entrada);
+        }
+
+        entrada.enUso = true;
+        return envolver(conexion, entrada, PreparedStatement.class);
+    }
+
+    /**
+     * Devuelve una sentencia de llamada a procedimiento para el SQL indicado,
+     * reutilizando la de la caché si está libre.
+     *
+     * @param conexion Conexión prestada que verá el código cliente.
+     * @param sql      Texto SQL de la llamada.
+     * @return La sentencia de llamada.
+     * @throws SQLException Si el driver no puede preparar la sentencia.
+     */
+    CallableStatement prepararLlamada(Connection conexion, String sql) throws SQLException {
+        String clave = "{call}" + sql;
+        Entrada entrada = sentencias.get(clave);
+        if (entrada != null && entrada.expulsada) {
+            sentencias.remove(clave);
+            entrada = null;
+        }
+
+        if (entrada != null && !entrada.enUso) {
+            ACIERTOS.increment();
+        } else {
+            FALLOS.increment();
+            CallableStatement cs = real.prepareCall(sql);
+
+            if (entrada != null) {
+                return cs;
+            }
+            entrada = new Entrada(cs);
+            sentencias.put(clave, entrada);
+        }
+
+        entrada.enUso = true;
+        return envolver(conexion, entrada, CallableStatement.class);
+    }
+
+    /**
+     * Crea el envoltorio que se entrega al código cliente.
+     *
+     * @param <T>      Tipo de sentencia.
+     * @param conexion Conexión prestada.
+     * @param entrada  Entrada de la caché.
+     * @param tipo     Interfaz de la sentencia.
+     * @return La sentencia envuelta.
+     */
+    private <T> T envolver(Connection conexion, Entrada entrada, Class<T> tipo) {
+        return tipo.cast(Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[] { tipo },
+                new ManejadorSentencia(conexion, entrada)));
+    }
+
+    /**
+     * Sentencia real guardada en la caché.
+     */
+    private static final class Entrada {
+
+        /**
+         * Sentencia real del driver.
+         */
+        private final PreparedStatement sentencia;
+
+        /**
+         * Indica si la sentencia está prestada al código cliente.
+         */
+        private boolean enUso;
+
+        /**
+         * Indica si la sentencia ha salido de la caché.
+         */
+        private boolean expulsada;
+
+        /**
+         * Constructor.
+         *
+         * @param sentencia Sentencia real del driver.
+         */
+        private Entrada(PreparedStatement sentencia) {
+            this.sentencia = sentencia;
+        }
+
+        /**
+         * Saca la sentencia de la caché. Si no está en uso se cierra ya; si lo está,
+         * se cerrará cuando el código cliente la cierre.
+         */
+        private void expulsar() {
+            expulsada = true;
+            if (!enUso) {
+                cerrarReal();
+            }
+        }
+
+        /**
+         * Cierra la sentencia real.
+         */
+        private void cerrarReal() {
+            try {
+                sentencia.close();
+            } catch (SQLException e) {
+                // La sentencia ya no se va a usar
+            }
+        }
+    }
+
+    /**
+     * Intercepta las llamadas a una sentencia obtenida de la caché.
+     */
+    private static final class ManejadorSentencia implements InvocationHandler {
+
+        /**
+         * Conexión prestada a la que pertenece la sentencia.
+         */
+        private final Connection conexion;
+
+        /**
+         * Entrada de la caché.
+         */
+        private final Entrada entrada;
+
+        /**
+         * Indica si el código cliente ya ha cerrado la sentencia.
+         */
+        private boolean cerrada;
+
+        /**
+         * Constructor.
+         *
+         * @param conexion Conexión prestada.
+         * @param entrada  Entrada de la caché.
+         */
+        private ManejadorSentencia(Connection conexion, Entrada entrada) {
+            this.conexion = conexion;
+            this.entrada = entrada;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            switch (metodo.getName()) {
+                case "close" -> {
+                    if (!cerrada) {
+                        cerrada = true;
+                        devolver();
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return cerrada;
+                }
+                case "getConnection" -> {
+                    return conexion;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "SentenciaCacheada[" + entrada.sentencia + "]";
+                }
+                default -> {
+                    if (cerrada) {
+                        throw new SQLException("La sentencia ya está cerrada.");
+                    }
+                    try {
+                        return metodo.invoke(entrada.sentencia, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Deja la sentencia lista para el siguiente uso.
+         */
+        private void devolver() {
+            entrada.enUso = false;
+            if (entrada.expulsada) {
+                entrada.cerrarReal();
+                return;
+            }
+            try {
+                entrada.sentencia.clearParameters();
+                entrada.sentencia.clearBatch();
+            } catch (SQLException e) {
+                entrada.expulsada = true;
+                entrada.cerrarReal();
+            }
+        }
+    }
+}
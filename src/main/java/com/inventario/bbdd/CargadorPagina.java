@@ -0,0 +1,24 @@
+package com.inventario.bbdd;
+
+import java.sql.SQLException;
+
+/**
+ * Carga una página de un listado a partir de una clave de referencia.
+ *
+ * @param <T> Tipo de los elementos.
+ */
+@FunctionalInterface
+public interface CargadorPagina<T> {
+
+    /**
+     * Carga la página que sigue o precede a la clave de referencia.
+     *
+     * @param referencia    Clave de referencia ({@link Pagina#INICIO} para la
+     *                      primera página).
+     * @param haciaAdelante true para los elementos posteriores a la referencia,
+     *                      false para los anteriores.
+     * @return La página cargada.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    Pagina<T> cargar(int referencia, boolean haciaAdelante) throws SQLException;
+}
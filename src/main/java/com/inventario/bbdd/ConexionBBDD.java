@@ -5,6 +5,8 @@ import java.io.InputStream;
 import java.sql.*;
 import java.util.Properties;
 
+import com.inventario.metricas.Metricas;
+
 /**
  * Clase que gestiona la conexión a la base de datos.
  */
@@ -25,6 +27,16 @@ public class ConexionBBDD {
      */
     private static String password;
 
+    /**
+     * Propiedades leídas de config.properties.
+     */
+    private static Properties configuracion = new Properties();
+
+    /**
+     * Pool de conexiones. Es null hasta que se llama a iniciarConexion().
+     */
+    private static PoolConexiones pool;
+
     /**
      * Obtiene la URL de la base de datos.
      *
@@ -97,6 +109,9 @@ public class ConexionBBDD {
             if (getUrl() == null || getUser() == null || getPassword() == null) {
                 System.out.println("Error: El archivo '" + RUTADELARCHIVO
                         + "' no contiene todas las propiedades requeridas (db.url, db.user, db.password).");
+            } else {
+                configuracion = prop;
+                iniciarPool();
             }
 
             System.out.println("Configuración cargada correctamente desde '" + RUTADELARCHIVO + "'.");
@@ -107,12 +122,102 @@ public class ConexionBBDD {
     }
 
     /**
-     * Obtiene una conexión a la base de datos.
+     * Crea el pool de conexiones con los valores de config.properties.
+     */
+    private static void iniciarPool() {
+        Properties propiedadesDriver = new Properties();
+        propiedadesDriver.setProperty("user", getUser());
+        propiedadesDriver.setProperty("password", getPassword());
+
+        // Con sentencias preparadas en el servidor, las que guarda la caché del pool
+        // no se vuelven a analizar en cada ejecución
+        if (Boolean.parseBoolean(getPropiedad("db.sentencias.servidor", "true"))) {
+            propiedadesDriver.setProperty("useServerPrepStmts", "true");
+        }
+
+        // Los lotes de INSERT se envían como una sola sentencia de varias filas
+        if (Boolean.parseBoolean(getPropiedad("db.lote.reescribir", "true"))) {
+            propiedadesDriver.setProperty("rewriteBatchedStatements", "true");
+        }
+
+        // Los listados se leen con un cursor del servidor en bloques de db.lectura.fetchSize filas
+        if (getPropiedadEntera("db.lectura.fetchSize", 1000) > 0) {
+            propiedadesDriver.setProperty("useCursorFetch", "true");
+        }
+
+        pool = new PoolConexiones(getUrl(), propiedadesDriver,
+                getPropiedadEntera("db.pool.minimo", 2),
+                getPropiedadEntera("db.pool.maximo", 10),
+                getPropiedadEntera("db.pool.inactividadMs", 300000),
+                getPropiedadEntera("db.pool.esperaMs", 30000),
+                getPropiedadEntera("db.pool.validacionSeg", 2),
+                getPropiedadEntera("db.pool.validacionOmitidaMs", 500),
+                getPropiedadEntera("db.sentencias.cache", 64));
+        Metricas.registrarComponente("Pool de conexiones", "type=PoolConexiones", pool);
+    }
+
+    /**
+     * Obtiene una propiedad de config.properties.
+     *
+     * @param clave   Nombre de la propiedad.
+     * @param defecto Valor si la propiedad no existe.
+     * @return El valor de la propiedad.
+     */
+    public static String getPropiedad(String clave, String defecto) {
+        return configuracion.getProperty(clave, defecto);
+    }
+
+    /**
+     * Obtiene una propiedad numérica de config.properties.
+     *
+     * @param clave   Nombre de la propiedad.
+     * @param defecto Valor si la propiedad no existe o no es un número.
+     * @return El valor de la propiedad.
+     */
+    public static int getPropiedadEntera(String clave, int defecto) {
+        String valor = configuracion.getProperty(clave);
+        int resultado = defecto;
+
+        if (valor != null) {
+            try {
+                resultado = Integer.parseInt(valor.trim());
+            } catch (NumberFormatException e) {
+                System.err.println("Valor no numérico para '" + clave + "': " + valor + ". Se usa " + defecto + ".");
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Obtiene el pool de conexiones.
+     *
+     * @return El pool, o null si no se ha iniciado la conexión.
+     */
+    public static PoolConexiones getPool() {
+        return pool;
+    }
+
+    /**
+     * Obtiene una conexión a la base de datos. Si el pool está iniciado la
+     * conexión se toma de él y al cerrarla vuelve al pool.
      *
      * @return Una conexión a la base de datos.
      * @throws SQLException Si hay un error al obtener la conexión.
      */
     public static Connection obtenerConexion() throws SQLException {
+        if (pool != null) {
+            return pool.getConnection();
+        }
         return DriverManager.getConnection(url, user, password);
     }
+
+    /**
+     * Cierra el pool de conexiones.
+     */
+    public static void cerrarConexion() {
+        if (pool != null) {
+            pool.cerrar();
+            pool = null;
+        }
+    }
 }
@@ -1,50 +1,402 @@
 package com.inventario.bbdd;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+
+import com.inventario.excepciones.DatoInvalidoException;
+import com.inventario.metricas.Metricas;
+import com.inventario.metricas.Operacion;
+import com.inventario.util.Util;
 
 public class GestionBBDD {
 
+    /** Métricas de imprimirTabla. */
+    private static final Operacion OP_IMPRIMIR = Metricas.operacion("GestionBBDD.imprimirTabla");
+
     /**
-     * Imprime el contenido de una tabla o consulta de forma genérica.
+     * Ancho de cada columna al imprimir una tabla.
+     */
+    private static final int ANCHO_COLUMNA = 25;
+
+    /**
+     * Tamaño del buffer de salida al imprimir una tabla.
+     */
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    /**
+     * Imprime el contenido de una tabla o consulta de forma genérica, con el
+     * límite de filas de config.properties ({@code listados.limiteFilas}).
      *
      * @param sql La consulta SQL a ejecutar.
      */
     public static void imprimirTabla(String sql) {
-        try (Connection con = ConexionBBDD.obtenerConexion();
-                Statement st = con.createStatement();
-                ResultSet rs = st.executeQuery(sql)) {
+        imprimirTabla(sql, ConexionBBDD.getPropiedadEntera("listados.limiteFilas", 0));
+    }
+
+    /**
+     * Imprime el contenido de una tabla o consulta de forma genérica.
+     * <p>
+     * Las filas se leen en streaming (cursor de solo avance, de
+     * {@code db.lectura.fetchSize} filas cada vez) y se escriben a través de un
+     * único buffer, así que ni el resultado completo ni la salida se guardan en
+     * memoria.
+     *
+     * @param sql    La consulta SQL a ejecutar.
+     * @param limite Número máximo de filas a imprimir (0 sin límite).
+     */
+    public static void imprimirTabla(String sql, int limite) {
+        long inicio = Metricas.iniciar();
+        int filas = 0;
+        boolean hayMas = false;
+        Writer salida = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), TAMANO_BUFFER);
 
-            ResultSetMetaData metaData = rs.getMetaData();
-            int numeroColumnas = metaData.getColumnCount();
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY)) {
 
-            // Imprimir encabezados
-            for (int i = 1; i <= numeroColumnas; i++) {
-                System.out.printf("%-25s", metaData.getColumnLabel(i));
+            ps.setFetchSize(tamanoLectura());
+            if (limite > 0) {
+                // Se pide una fila más para saber si el listado se ha cortado
+                ps.setMaxRows(limite + 1);
             }
-            System.out.println();
-            System.out.println("=".repeat(numeroColumnas * 25));
 
-            // Imprimir filas
-            boolean hayFilas = false;
-            while (rs.next()) {
-                hayFilas = true;
+            try (ResultSet rs = ps.executeQuery()) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                int numeroColumnas = metaData.getColumnCount();
+                StringBuilder linea = new StringBuilder(numeroColumnas * ANCHO_COLUMNA + 1);
+
+                // Imprimir encabezados
                 for (int i = 1; i <= numeroColumnas; i++) {
-                    Object valor = rs.getObject(i);
-                    System.out.printf("%-25s", valor);
+                    agregarCelda(linea, metaData.getColumnLabel(i));
+                }
+                linea.append('\n').append("=".repeat(numeroColumnas * ANCHO_COLUMNA)).append('\n');
+                salida.append(linea);
+
+                // Imprimir filas
+                while (rs.next()) {
+                    if (limite > 0 && filas == limite) {
+                        hayMas = true;
+                        break;
+                    }
+                    filas++;
+
+                    linea.setLength(0);
+                    for (int i = 1; i <= numeroColumnas; i++) {
+                        agregarCelda(linea, rs.getString(i));
+                    }
+                    linea.append('\n');
+                    salida.append(linea);
                 }
-                System.out.println();
             }
 
-            if (!hayFilas) {
-                System.out.println("No se encontraron resultados.");
+            if (filas == 0) {
+                salida.write("No se encontraron resultados.\n");
+            } else if (hayMas) {
+                salida.write("... mostrando solo las primeras " + limite + " filas.\n");
             }
+            OP_IMPRIMIR.registrar(inicio, sql, 0, filas);
 
         } catch (SQLException e) {
             System.err.println("Error al imprimir la tabla: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Error al escribir la tabla: " + e.getMessage());
+        } finally {
+            // Se vuelcan también las filas escritas antes de un error
+            try {
+                salida.flush();
+            } catch (IOException e) {
+                System.err.println("Error al escribir la tabla: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Obtiene el número de filas que se piden al servidor en cada lectura.
+     *
+     * @return El fetch size para el driver. Con 0 en la configuración se usa el
+     *         streaming fila a fila de MySQL ({@link Integer#MIN_VALUE}).
+     */
+    public static int tamanoLectura() {
+        int fetchSize = ConexionBBDD.getPropiedadEntera("db.lectura.fetchSize", 1000);
+        return fetchSize > 0 ? fetchSize : Integer.MIN_VALUE;
+    }
+
+    /**
+     * Obtiene el número de elementos por página de los listados paginados.
+     *
+     * @return El valor de {@code listados.tamanoPagina} (20 por defecto).
+     */
+    public static int tamanoPagina() {
+        return Math.max(1, ConexionBBDD.getPropiedadEntera("listados.tamanoPagina", 20));
+    }
+
+    /**
+     * Obtiene el número de IDs que se envían en cada consulta
+     * {@code IN (...)}.
+     *
+     * @return El valor de {@code db.lectura.tamanoIn} (100 por defecto).
+     */
+    public static int tamanoIn() {
+        return Math.max(1, ConexionBBDD.getPropiedadEntera("db.lectura.tamanoIn", 100));
+    }
+
+    /**
+     * Añade una celda a la línea, rellenando con espacios hasta el ancho de
+     * columna.
+     *
+     * @param linea Línea que se está formando.
+     * @param valor Valor de la celda.
+     */
+    private static void agregarCelda(StringBuilder linea, String valor) {
+        int inicio = linea.length();
+        linea.append(valor);
+        for (int i = linea.length() - inicio; i < ANCHO_COLUMNA; i++) {
+            linea.append(' ');
+        }
+    }
+
+    /**
+     * Carga una página de una consulta con paginación keyset: en lugar de OFFSET
+     * se filtra por la clave del último elemento visto, de modo que cualquier
+     * página cuesta lo mismo que la primera.
+     *
+     * @param <T>           Tipo de los elementos.
+     * @param select        Consulta sin WHERE, ORDER BY ni LIMIT, por ejemplo
+     *                      "SELECT ... FROM producto".
+     * @param clave         Columna entera y única por la que se pagina, por
+     *                      ejemplo "id_producto" o "v.id_venta".
+     * @param descendente   true si el listado va de mayor a menor clave.
+     * @param referencia    Clave de referencia ({@link Pagina#INICIO} para la
+     *                      primera página).
+     * @param haciaAdelante true para la página siguiente a la referencia, false
+     *                      para la anterior.
+     * @param tamano        Número de elementos por página.
+     * @param lector        Convierte cada fila en un elemento.
+     * @param operacion     Métricas en las que se registra la consulta.
+     * @return La página cargada.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static <T> Pagina<T> cargarPagina(String select, String clave, boolean descendente, int referencia,
+            boolean haciaAdelante, int tamano, LectorFila<T> lector, Operacion operacion) throws SQLException {
+        long inicio = Metricas.iniciar();
+
+        // Se recorre la clave hacia valores mayores o menores según el orden del
+        // listado y el sentido de la navegación
+        boolean haciaMayores = haciaAdelante != descendente;
+        String sql = select + " WHERE " + clave + (haciaMayores ? " > ?" : " < ?")
+                + " ORDER BY " + clave + (haciaMayores ? " ASC" : " DESC") + " LIMIT ?";
+        String etiquetaClave = clave.substring(clave.lastIndexOf('.') + 1);
+
+        int valorReferencia = referencia;
+        if (referencia == Pagina.INICIO) {
+            haciaAdelante = true;
+            valorReferencia = descendente ? Integer.MAX_VALUE : 0;
         }
+
+        List<T> elementos = new ArrayList<>(tamano);
+        int filas = 0;
+        int claveMinima = referencia;
+        int claveMaxima = referencia;
+        boolean hayMas = false;
+
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+
+            ps.setInt(1, valorReferencia);
+            // Una fila más para saber si hay otra página en ese sentido
+            ps.setInt(2, tamano + 1);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (filas == tamano) {
+                        hayMas = true;
+                        break;
+                    }
+
+                    int valorClave = rs.getInt(etiquetaClave);
+                    if (filas == 0) {
+                        claveMinima = valorClave;
+                        claveMaxima = valorClave;
+                    } else {
+                        claveMinima = Math.min(claveMinima, valorClave);
+                        claveMaxima = Math.max(claveMaxima, valorClave);
+                    }
+                    filas++;
+
+                    try {
+                        elementos.add(lector.leer(rs));
+                    } catch (DatoInvalidoException e) {
+                        System.err.println("ERROR de datos en el registro " + valorClave + ": " + e.getMessage()
+                                + ". Este registro ha sido OMITIDO de la lista.");
+                    }
+                }
+            }
+        }
+
+        if (!haciaAdelante) {
+            Collections.reverse(elementos);
+        }
+        operacion.registrar(inicio, sql, 2, filas);
+
+        int primeraClave = descendente ? claveMaxima : claveMinima;
+        int ultimaClave = descendente ? claveMinima : claveMaxima;
+        boolean hayAnterior = haciaAdelante ? referencia != Pagina.INICIO : hayMas;
+        boolean haySiguiente = haciaAdelante ? hayMas : true;
+
+        return new Pagina<>(elementos, primeraClave, ultimaClave, hayAnterior, haySiguiente);
+    }
+
+    /**
+     * Carga varios registros por su clave con consultas {@code IN (...)} de
+     * {@link #tamanoIn()} IDs, todas sobre la misma conexión.
+     * <p>
+     * El último trozo se rellena repitiendo su último ID, de modo que el texto
+     * SQL es siempre el mismo y la sentencia se reutiliza desde la caché de
+     * sentencias.
+     *
+     * @param <T>       Tipo de los elementos.
+     * @param select    Consulta sin WHERE, por ejemplo "SELECT ... FROM
+     *                  producto".
+     * @param clave     Columna entera y única por la que se busca, por ejemplo
+     *                  "id_producto".
+     * @param ids       IDs a buscar; los repetidos se consultan una vez.
+     * @param lector    Convierte cada fila en un elemento.
+     * @param operacion Métricas en las que se registra cada consulta.
+     * @return Los elementos encontrados por ID. Los IDs que no existen no
+     *         aparecen.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static <T> Map<Integer, T> cargarPorIds(String select, String clave, Collection<Integer> ids,
+            LectorFila<T> lector, Operacion operacion) throws SQLException {
+        Map<Integer, T> elementos = new HashMap<>(ids.size() * 2);
+        recorrerPorIds(select, clave, ids, lector, (elemento, valorClave) -> elementos.put(valorClave, elemento),
+                operacion);
+        return elementos;
+    }
+
+    /**
+     * Recorre las filas cuya clave está en una colección de IDs, con consultas
+     * {@code IN (...)} de {@link #tamanoIn()} IDs como
+     * {@link #cargarPorIds}, pero admitiendo varias filas por ID (por ejemplo
+     * las líneas de varias ventas).
+     *
+     * @param <T>       Tipo de los elementos.
+     * @param select    Consulta sin WHERE, por ejemplo "SELECT ... FROM
+     *                  DetalleVenta".
+     * @param clave     Columna entera por la que se busca, por ejemplo
+     *                  "id_venta".
+     * @param ids       IDs a buscar; los repetidos se consultan una vez.
+     * @param lector    Convierte cada fila en un elemento.
+     * @param destino   Recibe cada elemento junto con el valor de su clave.
+     * @param operacion Métricas en las que se registra cada consulta.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static <T> void recorrerPorIds(String select, String clave, Collection<Integer> ids,
+            LectorFila<T> lector, ObjIntConsumer<T> destino, Operacion operacion) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        int tamano = tamanoIn();
+        String sql = select + " WHERE " + clave + " IN (" + "?, ".repeat(tamano - 1) + "?)";
+        String etiquetaClave = clave.substring(clave.lastIndexOf('.') + 1);
+        List<Integer> distintos = new ArrayList<>(new LinkedHashSet<>(ids));
+
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+
+            for (int desde = 0; desde < distintos.size(); desde += tamano) {
+                long inicio = Metricas.iniciar();
+                int hasta = Math.min(desde + tamano, distintos.size());
+                int filas = 0;
+
+                for (int i = 0; i < tamano; i++) {
+                    ps.setInt(i + 1, distintos.get(Math.min(desde + i, hasta - 1)));
+                }
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int valorClave = rs.getInt(etiquetaClave);
+                        filas++;
+                        try {
+                            destino.accept(lector.leer(rs), valorClave);
+                        } catch (DatoInvalidoException e) {
+                            System.err.println("ERROR de datos en el registro " + valorClave + ": "
+                                    + e.getMessage() + ". Este registro ha sido OMITIDO.");
+                        }
+                    }
+                }
+                operacion.registrar(inicio, sql, tamano, filas);
+            }
+        }
+    }
+
+    /**
+     * Muestra un listado por páginas y permite navegar hacia delante y hacia
+     * atrás hasta que el usuario sale.
+     *
+     * @param <T>      Tipo de los elementos.
+     * @param scanner  Scanner para la entrada del usuario.
+     * @param cabecera Cabecera que se imprime encima de cada página.
+     * @param cargador Carga cada página.
+     * @param formato  Convierte un elemento en su línea del listado.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static <T> void navegarPaginas(Scanner scanner, String cabecera, CargadorPagina<T> cargador,
+            Function<T, String> formato) throws SQLException {
+        Pagina<T> pagina = cargador.cargar(Pagina.INICIO, true);
+        int numeroPagina = 1;
+        int opcion;
+
+        do {
+            System.out.println(cabecera);
+            System.out.println("-".repeat(cabecera.length()));
+
+            if (pagina.estaVacia()) {
+                System.out.println("No se encontraron resultados.");
+            }
+            for (T elemento : pagina.getElementos()) {
+                System.out.println(formato.apply(elemento));
+            }
+
+            System.out.println("\n--- Página " + numeroPagina + " ---");
+            if (pagina.haySiguiente()) {
+                System.out.println("1. Página siguiente");
+            }
+            if (pagina.hayAnterior()) {
+                System.out.println("2. Página anterior");
+            }
+            System.out.println("0. Salir del listado");
+
+            opcion = Util.pedirNumeroConRango(scanner, "", 0, 2);
+
+            if (opcion == 1 && pagina.haySiguiente()) {
+                pagina = cargador.cargar(pagina.getUltimaClave(), true);
+                numeroPagina++;
+            } else if (opcion == 2 && pagina.hayAnterior()) {
+                pagina = cargador.cargar(pagina.getPrimeraClave(), false);
+                numeroPagina--;
+            } else if (opcion != 0) {
+                System.out.println("No hay más páginas en esa dirección.");
+            }
+        } while (opcion != 0);
     }
 }
@@ -0,0 +1,25 @@
+package com.inventario.bbdd;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.inventario.excepciones.DatoInvalidoException;
+
+/**
+ * Convierte la fila actual de un ResultSet en un objeto.
+ *
+ * @param <T> Tipo del objeto.
+ */
+@FunctionalInterface
+public interface LectorFila<T> {
+
+    /**
+     * Lee la fila actual.
+     *
+     * @param rs ResultSet posicionado en la fila.
+     * @return El objeto leído.
+     * @throws SQLException          Si ocurre un error al leer la fila.
+     * @throws DatoInvalidoException Si los datos de la fila no son válidos.
+     */
+    T leer(ResultSet rs) throws SQLException, DatoInvalidoException;
+}
@@ -0,0 +1,114 @@
+package com.inventario.bbdd;
+
+import java.util.List;
+
+/**
+ * Página de resultados obtenida por paginación keyset (por clave primaria).
+ *
+ * @param <T> Tipo de los elementos.
+ */
+public class Pagina<T> {
+
+    /**
+     * Referencia para pedir la primera página.
+     */
+    public static final int INICIO = 0;
+
+    /**
+     * Elementos de la página, en el orden del listado.
+     */
+    private final List<T> elementos;
+
+    /**
+     * Clave del primer elemento.
+     */
+    private final int primeraClave;
+
+    /**
+     * Clave del último elemento.
+     */
+    private final int ultimaClave;
+
+    /**
+     * Indica si hay elementos antes de esta página.
+     */
+    private final boolean hayAnterior;
+
+    /**
+     * Indica si hay elementos después de esta página.
+     */
+    private final boolean haySiguiente;
+
+    /**
+     * Constructor.
+     *
+     * @param elementos    Elementos de la página.
+     * @param primeraClave Clave del primer elemento.
+     * @param ultimaClave  Clave del último elemento.
+     * @param hayAnterior  Si hay elementos antes de la página.
+     * @param haySiguiente Si hay elementos después de la página.
+     */
+    public Pagina(List<T> elementos, int primeraClave, int ultimaClave, boolean hayAnterior, boolean haySiguiente) {
+        this.elementos = elementos;
+        this.primeraClave = primeraClave;
+        this.ultimaClave = ultimaClave;
+        this.hayAnterior = hayAnterior;
+        this.haySiguiente = haySiguiente;
+    }
+
+    /**
+     * Obtiene los elementos de la página.
+     *
+     * @return Los elementos.
+     */
+    public List<T> getElementos() {
+        return elementos;
+    }
+
+    /**
+     * Obtiene la clave del primer elemento, que es la referencia para pedir la
+     * página anterior.
+     *
+     * @return La clave del primer elemento.
+     */
+    public int getPrimeraClave() {
+        return primeraClave;
+    }
+
+    /**
+     * Obtiene la clave del último elemento, que es la referencia para pedir la
+     * página siguiente.
+     *
+     * @return La clave del último elemento.
+     */
+    public int getUltimaClave() {
+        return ultimaClave;
+    }
+
+    /**
+     * Indica si hay elementos antes de esta página.
+     *
+     * @return true si hay página anterior.
+     */
+    public boolean hayAnterior() {
+        return hayAnterior;
+    }
+
+    /**
+     * Indica si hay elementos después de esta página.
+     *
+     * @return true si hay página siguiente.
+     */
+    public boolean haySiguiente() {
+        return haySiguiente;
+    }
+
+    /**
+     * Indica si la página no tiene elementos.
+     *
+     * @return true si está vacía.
+     */
+    public boolean estaVacia() {
+        return elementos.isEmpty();
+    }
+}
@@ -0,0 +1,538 @@
+package com.inventario.bbdd;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import com.inventario.metricas.Metricas;
+import com.inventario.metricas.Operacion;
+
+/**
+ * Pool de conexiones JDBC propio.
+ * <p>
+ * Mantiene un conjunto de conexiones físicas abiertas entre un mínimo y un
+ * máximo. Las conexiones que entrega son envoltorios cuyo {@code close()}
+ * devuelve la conexión física al pool en lugar de cerrarla, por lo que el
+ * código existente con try-with-resources funciona sin cambios.
+ */
+public class PoolConexiones implements DataSource, PoolConexionesMBean {
+
+    /**
+     * Tiempo de espera hasta obtener una conexión.
+     */
+    private static final Operacion OP_ESPERA = Metricas.operacion("PoolConexiones.obtenerConexion");
+
+    /**
+     * URL de la base de datos.
+     */
+    private final String url;
+
+    /**
+     * Propiedades que se pasan al driver (usuario, contraseña, etc.).
+     */
+    private final Properties propiedadesDriver;
+
+    /**
+     * Número mínimo de conexiones físicas que se mantienen abiertas.
+     */
+    private final int minimo;
+
+    /**
+     * Número máximo de conexiones físicas.
+     */
+    private final int maximo;
+
+    /**
+     * Tiempo en milisegundos tras el cual se cierra una conexión libre.
+     */
+    private final long inactividadMs;
+
+    /**
+     * Tiempo máximo en milisegundos que se espera a obtener una conexión.
+     */
+    private final long esperaMs;
+
+    /**
+     * Tiempo máximo en segundos para validar una conexión al prestarla.
+     */
+    private final int validacionSeg;
+
+    /**
+     * Conexiones usadas hace menos de este tiempo no se vuelven a validar.
+     */
+    private final long validacionOmitidaMs;
+
+    /**
+     * Sentencias preparadas que se guardan por conexión (0 desactiva la caché).
+     */
+    private final int tamanoCacheSentencias;
+
+    /**
+     * Permisos disponibles: uno por cada conexión que aún se puede prestar.
+     */
+    private final Semaphore permisos;
+
+    /**
+     * Conexiones físicas libres. Se usa como pila para reutilizar primero la
+     * conexión más reciente y dejar envejecer las demás.
+     */
+    private final ConcurrentLinkedDeque<ConexionFisica> libres = new ConcurrentLinkedDeque<>();
+
+    /**
+     * Número de conexiones físicas abiertas (prestadas + libres).
+     */
+    private final AtomicInteger totales = new AtomicInteger();
+
+    /**
+     * Tarea periódica que cierra las conexiones inactivas.
+     */
+    private final ScheduledExecutorService limpiador;
+
+    /**
+     * Indica si el pool ha sido cerrado.
+     */
+    private volatile boolean cerrado;
+
+    /**
+     * Crea un nuevo pool y abre las conexiones mínimas.
+     *
+     * @param url                   URL de la base de datos.
+     * @param propiedadesDriver     Propiedades para el driver (user,
+     *                              password...).
+     * @param minimo                Conexiones mínimas.
+     * @param maximo                Conexiones máximas.
+     * @param inactividadMs         Tiempo de inactividad antes de cerrar una
+     *                              conexión libre.
+     * @param esperaMs              Tiempo máximo de espera para obtener una
+     *                              conexión.
+     * @param validacionSeg         Tiempo máximo de validación al prestar.
+     * @param validacionOmitidaMs   Ventana en la que no se revalida una
+     *                              conexión usada recientemente.
+     * @param tamanoCacheSentencias Sentencias preparadas guardadas por
+     *                              conexión (0 desactiva la caché).
+     */
+    public PoolConexiones(String url, Properties propiedadesDriver, int minimo, int maximo, long inactividadMs,
+            long esperaMs, int validacionSeg, long validacionOmitidaMs, int tamanoCacheSentencias) {
+        if (maximo < 1 || minimo < 0 || minimo > maximo) {
+            throw new IllegalArgumentException("Tamaño de pool inválido (mínimo " + minimo + ", máximo " + maximo + ").");
+        }
+
+        this.url = url;
+        this.propiedadesDriver = propiedadesDriver;
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.inactividadMs = inactividadMs;
+        this.esperaMs = esperaMs;
+        this.validacionSeg = validacionSeg;
+        this.validacionOmitidaMs = validacionOmitidaMs;
+        this.tamanoCacheSentencias = tamanoCacheSentencias;
+        this.permisos = new Semaphore(maximo, true);
+
+        this.limpiador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "pool-conexiones-limpiador");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long periodo = Math.max(1000, inactividadMs / 2);
+        limpiador.scheduleWithFixedDelay(this::mantener, periodo, periodo, TimeUnit.MILLISECONDS);
+
+        rellenarMinimo();
+    }
+
+    /**
+     * Obtiene una conexión del pool, esperando como máximo el tiempo configurado.
+     *
+     * @return Una conexión prestada. Al cerrarla vuelve al pool.
+     * @throws SQLException Si se agota el tiempo de espera o no se puede abrir la
+     *                      conexión.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        long inicio = System.nanoTime();
+        if (cerrado) {
+            throw new SQLException("El pool de conexiones está cerrado.");
+        }
+
+        try {
+            if (!permisos.tryAcquire(esperaMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("No hay conexiones disponibles tras esperar " + esperaMs + " ms (máximo "
+                        + maximo + ").");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido mientras se esperaba una conexión.", e);
+        }
+
+        try {
+            ConexionFisica fisica;
+            do {
+                fisica = libres.pollFirst();
+                if (fisica != null && !esValida(fisica)) {
+                    descartar(fisica);
+                    fisica = null;
+                }
+            } while (fisica == null && !libres.isEmpty());
+
+            if (fisica == null) {
+                fisica = crear();
+            }
+            Connection conexion = fisica.prestar();
+            OP_ESPERA.registrar(inicio, 0);
+            return conexion;
+
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Cierra el pool y todas las conexiones libres. Las conexiones prestadas se
+     * cierran cuando se devuelven.
+     */
+    public void cerrar() {
+        cerrado = true;
+        limpiador.shutdownNow();
+
+        ConexionFisica fisica;
+        while ((fisica = libres.pollFirst()) != null) {
+            descartar(fisica);
+        }
+    }
+
+    @Override
+    public int getActivas() {
+        return totales.get() - libres.size();
+    }
+
+    @Override
+    public int getLibres() {
+        return libres.size();
+    }
+
+    @Override
+    public int getTotales() {
+        return totales.get();
+    }
+
+    @Override
+    public int getEsperando() {
+        return permisos.getQueueLength();
+    }
+
+    @Override
+    public long getAciertosSentencias() {
+        return CacheSentencias.ACIERTOS.sum();
+    }
+
+    @Override
+    public long getFallosSentencias() {
+        return CacheSentencias.FALLOS.sum();
+    }
+
+    /**
+     * Abre una nueva conexión física.
+     *
+     * @return La conexión física creada.
+     * @throws SQLException Si el driver no puede abrir la conexión.
+     */
+    private ConexionFisica crear() throws SQLException {
+        Connection real = DriverManager.getConnection(url, propiedadesDriver);
+        totales.incrementAndGet();
+        return new ConexionFisica(real);
+    }
+
+    /**
+     * Comprueba si una conexión libre sigue siendo válida antes de prestarla.
+     *
+     * @param fisica La conexión a comprobar.
+     * @return true si se puede prestar.
+     */
+    private boolean esValida(ConexionFisica fisica) {
+        if (System.currentTimeMillis() - fisica.ultimoUso < validacionOmitidaMs) {
+            return true;
+        }
+        try {
+            return fisica.real.isValid(validacionSeg);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Devuelve una conexión física al pool tras restablecer su estado.
+     *
+     * @param fisica La conexión que se devuelve.
+     */
+    private void devolver(ConexionFisica fisica) {
+        try {
+            boolean reutilizable = !cerrado && !fisica.real.isClosed();
+            if (reutilizable && !fisica.real.getAutoCommit()) {
+                // Lo que no se haya confirmado se descarta, igual que al cerrar una conexión
+                fisica.real.rollback();
+                fisica.real.setAutoCommit(true);
+            }
+
+            if (reutilizable) {
+                fisica.ultimoUso = System.currentTimeMillis();
+                libres.offerFirst(fisica);
+            } else {
+                descartar(fisica);
+            }
+        } catch (SQLException e) {
+            descartar(fisica);
+        } finally {
+            permisos.release();
+        }
+    }
+
+    /**
+     * Cierra definitivamente una conexión física.
+     *
+     * @param fisica La conexión a cerrar.
+     */
+    private void descartar(ConexionFisica fisica) {
+        totales.decrementAndGet();
+        try {
+            fisica.real.close();
+        } catch (SQLException e) {
+            // La conexión ya no sirve; no hay nada más que hacer con ella
+        }
+    }
+
+    /**
+     * Cierra las conexiones libres inactivas por encima del mínimo y vuelve a
+     * abrir conexiones si se ha bajado de él.
+     */
+    private void mantener() {
+        long ahora = System.currentTimeMillis();
+        Iterator<ConexionFisica> it = libres.descendingIterator();
+
+        while (it.hasNext() && totales.get() > minimo) {
+            ConexionFisica fisica = it.next();
+            if (ahora - fisica.ultimoUso > inactividadMs && libres.removeLastOccurrence(fisica)) {
+                descartar(fisica);
+            }
+        }
+
+        rellenarMinimo();
+    }
+
+    /**
+     * Abre conexiones libres hasta alcanzar el mínimo configurado.
+     */
+    private void rellenarMinimo() {
+        while (!cerrado && totales.get() < minimo && permisos.tryAcquire()) {
+            try {
+                ConexionFisica fisica = crear();
+                fisica.ultimoUso = System.currentTimeMillis();
+                libres.offerFirst(fisica);
+            } catch (SQLException e) {
+                System.err.println("No se pudo abrir una conexión para el pool: " + e.getMessage());
+                break;
+            } finally {
+                permisos.release();
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("El pool solo usa las credenciales de config.properties.");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        // El pool no usa log writer
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        // Se usa el tiempo de espera del pool
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return (int) (esperaMs / 1000);
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("El pool no envuelve " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * Conexión física abierta contra la base de datos.
+     */
+    private final class ConexionFisica {
+
+        /**
+         * Conexión real del driver.
+         */
+        private final Connection real;
+
+        /**
+         * Caché de sentencias de esta conexión, o null si está desactivada.
+         */
+        private final CacheSentencias cache;
+
+        /**
+         * Momento en que se devolvió al pool por última vez.
+         */
+        private volatile long ultimoUso;
+
+        /**
+         * Constructor.
+         *
+         * @param real Conexión real del driver.
+         */
+        private ConexionFisica(Connection real) {
+            this.real = real;
+            this.cache = tamanoCacheSentencias > 0 ? new CacheSentencias(real, tamanoCacheSentencias) : null;
+        }
+
+        /**
+         * Crea el envoltorio que se entrega al código cliente.
+         *
+         * @return Conexión cuyo close() la devuelve al pool.
+         */
+        private Connection prestar() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new ManejadorConexion(this));
+        }
+    }
+
+    /**
+     * Intercepta las llamadas a la conexión prestada.
+     */
+    private final class ManejadorConexion implements InvocationHandler {
+
+        /**
+         * Conexión física prestada.
+         */
+        private final ConexionFisica fisica;
+
+        /**
+         * Indica si el código cliente ya ha cerrado (devuelto) la conexión.
+         */
+        private boolean devuelta;
+
+        /**
+         * Constructor.
+         *
+         * @param fisica Conexión física prestada.
+         */
+        private ManejadorConexion(ConexionFisica fisica) {
+            this.fisica = fisica;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            switch (metodo.getName()) {
+                case "close" -> {
+                    if (!devuelta) {
+                        devuelta = true;
+                        devolver(fisica);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return devuelta || fisica.real.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "ConexionPool[" + fisica.real + "]";
+                }
+                case "prepareStatement" -> {
+                    if (!devuelta && fisica.cache != null && esCacheable(metodo)) {
+                        int generatedKeys = args.length == 2 ? (Integer) args[1] : -1;
+                        return fisica.cache.preparar((Connection) proxy, (String) args[0], generatedKeys);
+                    }
+                    return delegar(metodo, args);
+                }
+                case "prepareCall" -> {
+                    if (!devuelta && fisica.cache != null && args.length == 1) {
+                        return fisica.cache.prepararLlamada((Connection) proxy, (String) args[0]);
+                    }
+                    return delegar(metodo, args);
+                }
+                default -> {
+                    return delegar(metodo, args);
+                }
+            }
+        }
+
+        /**
+         * Indica si una llamada a prepareStatement se puede servir desde la caché:
+         * solo el SQL, o el SQL y autoGeneratedKeys.
+         *
+         * @param metodo Método invocado.
+         * @return true si se puede usar la caché.
+         */
+        private boolean esCacheable(Method metodo) {
+            Class<?>[] tipos = metodo.getParameterTypes();
+            return tipos.length == 1 || (tipos.length == 2 && tipos[1] == int.class);
+        }
+
+        /**
+         * Pasa la llamada a la conexión real.
+         *
+         * @param metodo Método invocado.
+         * @param args   Argumentos.
+         * @return El resultado de la conexión real.
+         * @throws Throwable La excepción que lance la conexión real.
+         */
+        private Object delegar(Method metodo, Object[] args) throws Throwable {
+            if (devuelta) {
+                throw new SQLException("La conexión ya se ha devuelto al pool.");
+            }
+            try {
+                return metodo.invoke(fisica.real, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
+
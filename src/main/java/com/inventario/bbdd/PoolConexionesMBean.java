@@ -0,0 +1,49 @@
+package com.inventario.bbdd;
+
+/**
+ * Interfaz JMX del pool de conexiones.
+ */
+public interface PoolConexionesMBean {
+
+    /**
+     * Obtiene el número de conexiones prestadas.
+     *
+     * @return Conexiones en uso.
+     */
+    int getActivas();
+
+    /**
+     * Obtiene el número de conexiones libres.
+     *
+     * @return Conexiones libres.
+     */
+    int getLibres();
+
+    /**
+     * Obtiene el número total de conexiones físicas abiertas.
+     *
+     * @return Conexiones abiertas.
+     */
+    int getTotales();
+
+    /**
+     * Obtiene el número de hilos esperando una conexión.
+     *
+     * @return Hilos en espera.
+     */
+    int getEsperando();
+
+    /**
+     * Obtiene el número de sentencias reutilizadas desde la caché.
+     *
+     * @return Aciertos de la caché de sentencias.
+     */
+    long getAciertosSentencias();
+
+    /**
+     * Obtiene el número de sentencias que se han tenido que preparar.
+     *
+     * @return Fallos de la caché de sentencias.
+     */
+    long getFallosSentencias();
+}
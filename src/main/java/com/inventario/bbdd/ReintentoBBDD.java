@@ -0,0 +1,186 @@
+package com.inventario.bbdd;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.inventario.metricas.Metricas;
+import com.inventario.metricas.Operacion;
+
+/**
+ * Reintenta operaciones que fallan por un interbloqueo (error 1213 de MySQL),
+ * por agotar la espera de un bloqueo (error 1205) o por un conflicto de
+ * serialización (SQLSTATE 40001, que también lanza el modo optimista de
+ * {@code MotorStock}).
+ * <p>
+ * Entre intentos se espera un tiempo aleatorio que crece con cada intento
+ * (hasta {@code db.reintentos.esperaMs * 2^intento}), para que las
+ * transacciones que han chocado no vuelvan a coincidir. Se hacen como mucho
+ * {@code db.reintentos.maximo} reintentos.
+ */
+public class ReintentoBBDD {
+
+    /** Código de MySQL de interbloqueo: se ha deshecho toda la transacción. */
+    public static final int ERROR_INTERBLOQUEO = 1213;
+
+    /** Código de MySQL de espera de bloqueo agotada: solo se deshace la sentencia. */
+    public static final int ERROR_ESPERA_BLOQUEO = 1205;
+
+    /** Métricas de cada reintento (el tiempo es la espera antes de reintentar). */
+    private static final Operacion OP_REINTENTO = Metricas.operacion("ReintentoBBDD.reintento");
+
+    /** Operaciones que han fallado tras agotar los reintentos. */
+    private static final Operacion OP_AGOTADO = Metricas.operacion("ReintentoBBDD.agotado");
+
+    /**
+     * Operación de base de datos que se puede repetir.
+     *
+     * @param <T> Tipo del resultado.
+     */
+    @FunctionalInterface
+    public interface TareaBBDD<T> {
+
+        /**
+         * Ejecuta la operación.
+         *
+         * @return El resultado.
+         * @throws SQLException Si ocurre un error al interactuar con la base de
+         *                      datos.
+         */
+        T ejecutar() throws SQLException;
+    }
+
+    /**
+     * Deja la transacción lista para repetir la operación tras un error
+     * reintentable.
+     */
+    @FunctionalInterface
+    public interface Recuperacion {
+
+        /**
+         * Prepara el reintento.
+         *
+         * @param error El error que ha provocado el reintento.
+         * @throws SQLException Si ocurre un error al interactuar con la base de
+         *                      datos.
+         */
+        void preparar(SQLException error) throws SQLException;
+    }
+
+    /**
+     * Ejecuta una operación que abre y cierra su propia transacción,
+     * reintentándola si falla por un interbloqueo o una espera de bloqueo.
+     *
+     * @param <T>   Tipo del resultado.
+     * @param tarea La operación.
+     * @return El resultado de la operación.
+     * @throws SQLException El error de la operación si no es reintentable o se
+     *                      han agotado los reintentos.
+     */
+    public static <T> T ejecutar(TareaBBDD<T> tarea) throws SQLException {
+        return ejecutar(tarea, null);
+    }
+
+    /**
+     * Ejecuta una operación dentro de una transacción que sigue abierta,
+     * reintentándola si falla por un interbloqueo o una espera de bloqueo.
+     * Antes de cada reintento se llama a la recuperación, que debe deshacer lo
+     * que quede de la operación fallida (y, tras un interbloqueo, rehacer lo que
+     * la transacción hubiera hecho antes).
+     *
+     * @param <T>          Tipo del resultado.
+     * @param tarea        La operación.
+     * @param recuperacion Prepara cada reintento, o null si no hace falta.
+     * @return El resultado de la operación.
+     * @throws SQLException El error de la operación si no es reintentable o se
+     *                      han agotado los reintentos.
+     */
+    public static <T> T ejecutar(TareaBBDD<T> tarea, Recuperacion recuperacion) throws SQLException {
+        int maximo = Math.max(0, ConexionBBDD.getPropiedadEntera("db.reintentos.maximo", 3));
+        int esperaBase = Math.max(1, ConexionBBDD.getPropiedadEntera("db.reintentos.esperaMs", 50));
+        SQLException pendiente = null;
+
+        for (int intento = 0;; intento++) {
+            try {
+                if (pendiente != null && recuperacion != null) {
+                    recuperacion.preparar(pendiente);
+                }
+                pendiente = null;
+                return tarea.ejecutar();
+
+            } catch (SQLException e) {
+                if (!esReintentable(e)) {
+                    throw e;
+                }
+                if (intento >= maximo) {
+                    OP_AGOTADO.registrar(System.nanoTime(), 0);
+                    throw e;
+                }
+                // Si un interbloqueo sigue sin recuperar, la recuperación pendiente es la suya
+                if (pendiente == null || !esInterbloqueo(pendiente)) {
+                    pendiente = e;
+                }
+                esperar(intento, esperaBase);
+            }
+        }
+    }
+
+    /**
+     * Indica si un error se puede resolver repitiendo la operación.
+     *
+     * @param e El error.
+     * @return true si es un interbloqueo o una espera de bloqueo agotada.
+     */
+    public static boolean esReintentable(SQLException e) {
+        return tieneCodigo(e, ERROR_INTERBLOQUEO) || tieneCodigo(e, ERROR_ESPERA_BLOQUEO)
+                || "40001".equals(e.getSQLState());
+    }
+
+    /**
+     * Indica si un error es un interbloqueo, tras el cual MySQL ha deshecho
+     * toda la transacción (y sus savepoints).
+     *
+     * @param e El error.
+     * @return true si es un interbloqueo.
+     */
+    public static boolean esInterbloqueo(SQLException e) {
+        return tieneCodigo(e, ERROR_INTERBLOQUEO) || "40001".equals(e.getSQLState());
+    }
+
+    /**
+     * Busca un código de error en el error y en los encadenados.
+     *
+     * @param e      El error.
+     * @param codigo El código de MySQL.
+     * @return true si alguno de los errores tiene ese código.
+     */
+    private static boolean tieneCodigo(SQLException e, int codigo) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql) {
+                for (SQLException s = sql; s != null; s = s.getNextException()) {
+                    if (s.getErrorCode() == codigo) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Espera un tiempo aleatorio entre 0 y {@code esperaBase * 2^intento}
+     * milisegundos.
+     *
+     * @param intento    Número de intento que ha fallado (desde 0).
+     * @param esperaBase Espera base en milisegundos.
+     */
+    private static void esperar(int intento, int esperaBase) {
+        long inicio = System.nanoTime();
+        long maximaMs = (long) esperaBase << Math.min(intento, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maximaMs + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        OP_REINTENTO.registrar(inicio, 0);
+    }
+}
@@ -0,0 +1,158 @@
+package com.inventario.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+import com.inventario.bbdd.ConexionBBDD;
+import com.inventario.clientes.Cliente;
+import com.inventario.clientes.ClientesBBDD;
+import com.inventario.excepciones.DatoInvalidoException;
+
+/**
+ * Compara el alta de clientes y la recarga de saldos fila a fila con las
+ * versiones por lotes ({@link ClientesBBDD#insertarClientes(Iterable)} y
+ * {@link ClientesBBDD#agregarDineroLote(Map)}).
+ * <p>
+ * Las dos altas hacen el mismo trabajo: comprueban que el email no exista
+ * antes de insertar, fila a fila con {@link ClientesBBDD#existeEmail(String)}
+ * y por lotes con {@link ClientesBBDD#emailsExistentes(java.util.Collection)}.
+ * <p>
+ * Uso: {@code BenchmarkClientesLote [numeroClientes]}. Los clientes de prueba
+ * tienen emails "bench-...@bench.local" y se borran al terminar.
+ *
+ * @author Diego Luengo Gil
+ */
+public class BenchmarkClientesLote {
+
+    /**
+     * Dominio de los emails de los clientes de prueba.
+     */
+    private static final String DOMINIO = "@bench.local";
+
+    /**
+     * Crea los clientes de prueba.
+     *
+     * @param cantidad Número de clientes.
+     * @param serie    Texto para distinguir cada pasada.
+     * @return Los clientes.
+     * @throws DatoInvalidoException Si algún dato es inválido.
+     */
+    private static List<Cliente> crearClientes(int cantidad, String serie) throws DatoInvalidoException {
+        List<Cliente> clientes = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            clientes.add(new Cliente("Cliente de prueba " + i, "bench-" + serie + "-" + i + DOMINIO,
+                    "600000000", 0));
+        }
+        return clientes;
+    }
+
+    /**
+     * Prepara una recarga de saldo para cada ID.
+     *
+     * @param ids Los IDs de los clientes.
+     * @return La cantidad a sumar a cada cliente.
+     */
+    private static Map<Integer, Double> crearRecargas(List<Integer> ids) {
+        Map<Integer, Double> cantidades = new LinkedHashMap<>(ids.size() * 2);
+        for (int i = 0; i < ids.size(); i++) {
+            cantidades.put(ids.get(i), (double) (1 + i % 50));
+        }
+        return cantidades;
+    }
+
+    /**
+     * Borra los clientes de prueba.
+     *
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static void borrarClientesPrueba() throws SQLException {
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement("DELETE FROM cliente WHERE email LIKE ?")) {
+            ps.setString(1, "bench-%" + DOMINIO);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Imprime el resultado de una pasada.
+     *
+     * @param nombre   Nombre de la pasada.
+     * @param cantidad Filas procesadas.
+     * @param nanos    Tiempo empleado.
+     */
+    private static void imprimirResultado(String nombre, int cantidad, long nanos) {
+        double segundos = nanos / 1_000_000_000.0;
+        System.out.printf("%-24s %8d filas en %8.3f s -> %10.0f filas/s\n", nombre, cantidad, segundos,
+                cantidad / segundos);
+    }
+
+    /**
+     * Crea un receptor de progreso que imprime el avance de una pasada por
+     * lotes cada vez que se completa una décima parte del total.
+     *
+     * @param total Número total de filas.
+     * @return El receptor de progreso.
+     */
+    private static IntConsumer progreso(int total) {
+        int paso = Math.max(1, total / 10);
+        int[] siguiente = { paso };
+        return procesados -> {
+            if (procesados >= siguiente[0] || procesados == total) {
+                System.out.printf("  ... %d / %d\n", procesados, total);
+                siguiente[0] = procesados + paso;
+            }
+        };
+    }
+
+    public static void main(String[] args) throws Exception {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+        ConexionBBDD.iniciarConexion();
+        try {
+            borrarClientesPrueba();
+            ClientesBBDD.cargarIndice();
+
+            List<Cliente> unoAUno = crearClientes(cantidad, "fila");
+            List<Integer> idsFila = new ArrayList<>(cantidad);
+            long inicio = System.nanoTime();
+            for (Cliente cliente : unoAUno) {
+                if (!ClientesBBDD.existeEmail(cliente.getEmail())) {
+                    ClientesBBDD.insertarCliente(cliente);
+                    idsFila.add(cliente.getId());
+                }
+            }
+            imprimirResultado("Alta fila a fila", idsFila.size(), System.nanoTime() - inicio);
+
+            List<Cliente> porLotes = crearClientes(cantidad, "lote");
+            inicio = System.nanoTime();
+            List<Cliente> omitidos = new ArrayList<>();
+            List<Integer> idsLote = ClientesBBDD.insertarClientes(porLotes, progreso(cantidad), omitidos);
+            imprimirResultado("Alta por lotes", idsLote.size(), System.nanoTime() - inicio);
+            if (!omitidos.isEmpty()) {
+                System.out.println("  (" + omitidos.size() + " omitidos por email repetido)");
+            }
+
+            Map<Integer, Double> recargasFila = crearRecargas(idsFila);
+            inicio = System.nanoTime();
+            for (Map.Entry<Integer, Double> recarga : recargasFila.entrySet()) {
+                ClientesBBDD.agregarDinero(recarga.getKey(), recarga.getValue());
+            }
+            imprimirResultado("Recarga fila a fila", recargasFila.size(), System.nanoTime() - inicio);
+
+            Map<Integer, Double> recargasLote = crearRecargas(idsLote);
+            inicio = System.nanoTime();
+            int actualizados = ClientesBBDD.agregarDineroLote(recargasLote, progreso(recargasLote.size()));
+            imprimirResultado("Recarga por lotes", actualizados, System.nanoTime() - inicio);
+
+        } finally {
+            borrarClientesPrueba();
+            ConexionBBDD.cerrarConexion();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.inventario.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.inventario.bbdd.ConexionBBDD;
+import com.inventario.excepciones.DatoInvalidoException;
+import com.inventario.productos.Producto;
+import com.inventario.productos.ProductosBBDD;
+
+/**
+ * Compara la inserción de productos fila a fila con la inserción por lotes.
+ * <p>
+ * Uso: {@code BenchmarkInsercionProductos [numeroProductos]}. Los productos de
+ * prueba se llaman "BENCH-..." y se borran al terminar.
+ *
+ * @author Diego Luengo Gil
+ */
+public class BenchmarkInsercionProductos {
+
+    /**
+     * Prefijo del nombre de los productos de prueba.
+     */
+    private static final String PREFIJO = "BENCH-";
+
+    /**
+     * Crea los productos de prueba.
+     *
+     * @param cantidad Número de productos.
+     * @param serie    Texto para distinguir cada pasada.
+     * @return Los productos.
+     * @throws DatoInvalidoException Si algún dato es inválido.
+     */
+    private static List<Producto> crearProductos(int cantidad, String serie) throws DatoInvalidoException {
+        List<Producto> productos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            productos.add(new Producto(PREFIJO + serie + "-" + i, "Producto de prueba", 1 + (i % 100), 10));
+        }
+        return productos;
+    }
+
+    /**
+     * Borra los productos de prueba.
+     *
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static void borrarProductosPrueba() throws SQLException {
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement("DELETE FROM producto WHERE nombre LIKE ?")) {
+            ps.setString(1, PREFIJO + "%");
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Imprime el resultado de una pasada.
+     *
+     * @param nombre   Nombre de la pasada.
+     * @param cantidad Filas insertadas.
+     * @param nanos    Tiempo empleado.
+     */
+    private static void imprimirResultado(String nombre, int cantidad, long nanos) {
+        double segundos = nanos / 1_000_000_000.0;
+        System.out.printf("%-20s %8d filas en %8.3f s -> %10.0f filas/s\n", nombre, cantidad, segundos,
+                cantidad / segundos);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+        ConexionBBDD.iniciarConexion();
+        try {
+            borrarProductosPrueba();
+
+            List<Producto> unoAUno = crearProductos(cantidad, "fila");
+            long inicio = System.nanoTime();
+            for (Producto producto : unoAUno) {
+                ProductosBBDD.insertarProducto(producto);
+            }
+            imprimirResultado("Fila a fila", cantidad, System.nanoTime() - inicio);
+
+            List<Producto> porLotes = crearProductos(cantidad, "lote");
+            inicio = System.nanoTime();
+            List<Integer> ids = ProductosBBDD.insertarProductos(porLotes);
+            imprimirResultado("Por lotes", ids.size(), System.nanoTime() - inicio);
+
+        } finally {
+            borrarProductosPrueba();
+            ConexionBBDD.cerrarConexion();
+        }
+    }
+}
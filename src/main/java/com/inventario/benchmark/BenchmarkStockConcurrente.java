@@ -0,0 +1,225 @@
+package com.inventario.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.inventario.bbdd.ConexionBBDD;
+import com.inventario.bbdd.ReintentoBBDD;
+import com.inventario.productos.MotorStock;
+
+/**
+ * Mide las ventas por segundo sobre un único producto muy vendido con varios
+ * hilos a la vez.
+ * <p>
+ * Compara el descuento antiguo (leer el stock y escribir el nuevo valor, como
+ * hacía RegistrarDetalleVenta) con los modos condicional y optimista de
+ * {@link MotorStock}. Además de la velocidad se muestran las unidades perdidas:
+ * ventas confirmadas cuyo descuento ha sobrescrito otra venta simultánea.
+ * <p>
+ * Uso: {@code BenchmarkStockConcurrente [hilos] [ventasPorHilo]}. El producto
+ * de prueba se llama "BENCH-..." y se borra al terminar.
+ *
+ * @author Diego Luengo Gil
+ */
+public class BenchmarkStockConcurrente {
+
+    /**
+     * Prefijo del nombre de los productos de prueba.
+     */
+    private static final String PREFIJO = "BENCH-";
+
+    /**
+     * Stock inicial del producto de prueba; suficiente para no agotarse.
+     */
+    private static final int STOCK_INICIAL = 100_000_000;
+
+    /**
+     * Forma de descontar una unidad de stock dentro de una transacción.
+     */
+    private interface Descuento {
+
+        /**
+         * Descuenta una unidad.
+         *
+         * @param con        Conexión con la transacción abierta.
+         * @param idProducto ID del producto.
+         * @return true si se ha descontado.
+         * @throws SQLException Si ocurre un error al interactuar con la base de
+         *                      datos.
+         */
+        boolean descontar(Connection con, int idProducto) throws SQLException;
+    }
+
+    /**
+     * Descuento antiguo: lee el stock y escribe el valor calculado.
+     *
+     * @param con        Conexión con la transacción abierta.
+     * @param idProducto ID del producto.
+     * @return true si había stock.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static boolean leerYEscribir(Connection con, int idProducto) throws SQLException {
+        int stock;
+        try (PreparedStatement ps = con.prepareStatement("SELECT stock FROM producto WHERE id_producto = ?")) {
+            ps.setInt(1, idProducto);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                stock = rs.getInt(1);
+            }
+        }
+        if (stock < 1) {
+            return false;
+        }
+        try (PreparedStatement ps = con.prepareStatement("UPDATE producto SET stock = ? WHERE id_producto = ?")) {
+            ps.setInt(1, stock - 1);
+            ps.setInt(2, idProducto);
+            ps.executeUpdate();
+        }
+        return true;
+    }
+
+    /**
+     * Crea el producto de prueba.
+     *
+     * @return Su ID.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static int crearProducto() throws SQLException {
+        String sql = "INSERT INTO producto (nombre, descripcion, precio, stock) VALUES (?, ?, ?, ?)";
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, PREFIJO + "CALIENTE");
+            ps.setString(2, "Producto de prueba");
+            ps.setDouble(3, 1);
+            ps.setInt(4, STOCK_INICIAL);
+            ps.executeUpdate();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Lee el stock del producto de prueba.
+     *
+     * @param idProducto ID del producto.
+     * @return El stock actual.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static int leerStock(int idProducto) throws SQLException {
+        try (Connection con = ConexionBBDD.obtenerConexion()) {
+            return MotorStock.leerStock(con, List.of(idProducto)).get(idProducto);
+        }
+    }
+
+    /**
+     * Borra los productos de prueba.
+     *
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static void borrarProductosPrueba() throws SQLException {
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement("DELETE FROM producto WHERE nombre LIKE ?")) {
+            ps.setString(1, PREFIJO + "%");
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Hace una venta de una unidad en su propia transacción.
+     *
+     * @param descuento  Forma de descontar.
+     * @param idProducto ID del producto.
+     * @return true si se ha confirmado la venta.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static boolean vender(Descuento descuento, int idProducto) throws SQLException {
+        try (Connection con = ConexionBBDD.obtenerConexion()) {
+            con.setAutoCommit(false);
+            try {
+                if (descuento.descontar(con, idProducto)) {
+                    con.commit();
+                    return true;
+                }
+                con.rollback();
+                return false;
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Ejecuta una pasada: cada hilo hace sus ventas de una unidad, cada una en su
+     * propia transacción, que se repite entera con {@link ReintentoBBDD} si choca
+     * con otra (interbloqueo o conflicto optimista).
+     *
+     * @param nombre        Nombre de la pasada.
+     * @param descuento     Forma de descontar.
+     * @param hilos         Número de hilos.
+     * @param ventasPorHilo Ventas que intenta cada hilo.
+     * @throws Exception Si falla la preparación o algún hilo.
+     */
+    private static void pasada(String nombre, Descuento descuento, int hilos, int ventasPorHilo)
+            throws Exception {
+        int idProducto = crearProducto();
+        AtomicLong confirmadas = new AtomicLong();
+        AtomicLong errores = new AtomicLong();
+        List<Thread> trabajadores = new ArrayList<>(hilos);
+
+        long inicio = System.nanoTime();
+        for (int h = 0; h < hilos; h++) {
+            Thread hilo = new Thread(() -> {
+                for (int i = 0; i < ventasPorHilo; i++) {
+                    try {
+                        if (ReintentoBBDD.ejecutar(() -> vender(descuento, idProducto))) {
+                            confirmadas.incrementAndGet();
+                        }
+                    } catch (SQLException e) {
+                        errores.incrementAndGet();
+                    }
+                }
+            }, "bench-stock-" + h);
+            trabajadores.add(hilo);
+            hilo.start();
+        }
+        for (Thread hilo : trabajadores) {
+            hilo.join();
+        }
+        long nanos = System.nanoTime() - inicio;
+
+        long perdidas = confirmadas.get() - (STOCK_INICIAL - leerStock(idProducto));
+        double segundos = nanos / 1_000_000_000.0;
+        System.out.printf("%-20s %8d ventas en %8.3f s -> %10.0f ventas/s | errores %6d | unidades perdidas %6d\n",
+                nombre, confirmadas.get(), segundos, confirmadas.get() / segundos, errores.get(), perdidas);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int hilos = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int ventasPorHilo = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        ConexionBBDD.iniciarConexion();
+        try {
+            borrarProductosPrueba();
+
+            pasada("Leer y escribir", BenchmarkStockConcurrente::leerYEscribir, hilos, ventasPorHilo);
+            pasada("Condicional", (con, id) -> MotorStock.descontarCondicional(con, id, 1) == MotorStock.DESCONTADO,
+                    hilos, ventasPorHilo);
+            pasada("Optimista", (con, id) -> MotorStock.descontarOptimista(con, id, 1)
+                    == MotorStock.DESCONTADO, hilos, ventasPorHilo);
+
+        } finally {
+            borrarProductosPrueba();
+            ConexionBBDD.cerrarConexion();
+        }
+    }
+}
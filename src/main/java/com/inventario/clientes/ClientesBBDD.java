@@ -6,36 +6,394 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
 
 import com.inventario.bbdd.ConexionBBDD;
 import com.inventario.bbdd.GestionBBDD;
+import com.inventario.bbdd.Pagina;
 import com.inventario.excepciones.DatoInvalidoException;
+import com.inventario.metricas.Metricas;
+import com.inventario.metricas.Operacion;
+import com.inventario.util.CacheLRU;
+import com.inventario.util.FiltroBloom;
+import com.inventario.util.FiltroBloomEscalable;
+import com.inventario.util.IndiceIds;
+import com.inventario.util.IndicePrefijos;
 
 /**
  * Clase que gestiona las operaciones de la tabla "cliente" en la base de datos.
  */
 public class ClientesBBDD {
 
+    /** Métricas de existeCliente. */
+    private static final Operacion OP_EXISTE = Metricas.operacion("ClientesBBDD.existeCliente");
+
+    /** Métricas de agregarDinero. */
+    private static final Operacion OP_AGREGAR_DINERO = Metricas.operacion("ClientesBBDD.agregarDinero");
+
+    /** Métricas de restarDinero. */
+    private static final Operacion OP_RESTAR_DINERO = Metricas.operacion("ClientesBBDD.restarDinero");
+
+    /** Métricas de contarClientes. */
+    private static final Operacion OP_CONTAR = Metricas.operacion("ClientesBBDD.contarClientes");
+
+    /** Métricas de buscarPorCampo. */
+    private static final Operacion OP_BUSCAR = Metricas.operacion("ClientesBBDD.buscarPorCampo");
+
+    /** Métricas de cada consulta de buscarPorIds. */
+    private static final Operacion OP_BUSCAR_IDS = Metricas.operacion("ClientesBBDD.buscarPorIds");
+
+    /** Métricas de eliminarCliente. */
+    private static final Operacion OP_ELIMINAR = Metricas.operacion("ClientesBBDD.eliminarCliente");
+
+    /** Métricas de actualizarClienteCampo. */
+    private static final Operacion OP_ACTUALIZAR = Metricas.operacion("ClientesBBDD.actualizarClienteCampo");
+
+    /** Métricas de obtenerClientes. */
+    private static final Operacion OP_OBTENER = Metricas.operacion("ClientesBBDD.obtenerClientes");
+
+    /** Métricas de obtenerPagina. */
+    private static final Operacion OP_PAGINA = Metricas.operacion("ClientesBBDD.obtenerPagina");
+
+    /** Métricas de insertarCliente. */
+    private static final Operacion OP_INSERTAR = Metricas.operacion("ClientesBBDD.insertarCliente");
+
+    /** Métricas de cada lote de insertarClientes. */
+    private static final Operacion OP_INSERTAR_LOTE = Metricas.operacion("ClientesBBDD.insertarClientes");
+
+    /** Métricas de cada lote de agregarDineroLote. */
+    private static final Operacion OP_AGREGAR_DINERO_LOTE = Metricas.operacion("ClientesBBDD.agregarDineroLote");
+
+    /** Comprobaciones de existeCliente resueltas con el índice, sin consultar. */
+    private static final Operacion OP_EXISTE_INDICE = Metricas.operacion("ClientesBBDD.existeCliente.indice");
+
+    /** Métricas de buscarPorTexto. */
+    private static final Operacion OP_BUSCAR_TEXTO = Metricas.operacion("ClientesBBDD.buscarPorTexto");
+
+    /** Métricas de existeEmail y emailsExistentes cuando consultan la base de datos. */
+    private static final Operacion OP_EXISTE_EMAIL = Metricas.operacion("ClientesBBDD.existeEmail");
+
+    /** Comprobaciones de email descartadas por el filtro de Bloom, sin consultar. */
+    private static final Operacion OP_EXISTE_EMAIL_FILTRO = Metricas.operacion("ClientesBBDD.existeEmail.filtro");
+
+    /** Métricas de cargarIndice. */
+    private static final Operacion OP_CARGAR_INDICE = Metricas.operacion("ClientesBBDD.cargarIndice");
+
+    /**
+     * Caché de clientes por ID. Se invalida en cada escritura que pasa por esta
+     * clase y en los cobros y reembolsos de las ventas; el tiempo de vida limita
+     * lo que puede durar un dato modificado desde fuera de la aplicación.
+     */
+    private static final CacheLRU<Integer, Cliente> CACHE = new CacheLRU<>(
+            ConexionBBDD.getPropiedadEntera("cache.clientes.maximo", 10000),
+            ConexionBBDD.getPropiedadEntera("cache.clientes.ttlSegundos", 60));
+
+    /**
+     * IDs de los clientes existentes, cargados con {@link #cargarIndice()} y
+     * mantenidos al insertar, eliminar y cambiar el ID de un cliente.
+     */
+    private static final IndiceIds INDICE = new IndiceIds();
+
+    /**
+     * Índice de prefijos sobre el nombre y el email de los clientes, cargado y
+     * mantenido junto con el índice de existencia.
+     */
+    private static final IndicePrefijos INDICE_TEXTO = new IndicePrefijos();
+
+    /**
+     * Filtro de Bloom con los emails de los clientes, construido en
+     * {@link #cargarIndice()} y ampliado al insertar y al cambiar un email;
+     * cuando las altas superan su capacidad encadena otro filtro mayor. Es null
+     * hasta que se carga.
+     */
+    private static volatile FiltroBloomEscalable filtroEmails;
+
+    static {
+        Metricas.registrarComponente("Caché de clientes", "type=Cache,name=clientes", CACHE);
+    }
+
+    /**
+     * Carga el índice de existencia con los IDs de todos los clientes, el
+     * índice de nombres y emails y el filtro de emails, en una sola lectura por
+     * bloques sin crear un objeto por cliente. Hasta que se cargan,
+     * {@link #existeCliente(int)}, {@link #buscarPorTexto(String, int)} y
+     * {@link #existeEmail(String)} consultan la base de datos.
+     * <p>
+     * Durante la lectura solo se guarda la huella de cada email; el filtro se
+     * dimensiona al final con el número de clientes, dejando margen para las
+     * altas posteriores; si se agota, el filtro crece encadenando otro.
+     *
+     * @return El número de clientes.
+     * @throws SQLException Si hay un error al leer los clientes.
+     */
+    public static int cargarIndice() throws SQLException {
+        long inicio = Metricas.iniciar();
+        String sql = "SELECT id_cliente, nombre, email FROM cliente";
+        BitSet ids = new BitSet();
+        long[] huellas = new long[1024];
+        int leidos = 0;
+
+        INDICE_TEXTO.vaciar();
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(GestionBBDD.tamanoLectura());
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.set(rs.getInt(1));
+                    INDICE_TEXTO.indexar(rs.getInt(1), rs.getString(2), rs.getString(3));
+                    if (rs.getString(3) != null) {
+                        if (leidos == huellas.length) {
+                            huellas = Arrays.copyOf(huellas, leidos * 2);
+                        }
+                        huellas[leidos++] = FiltroBloom.huella(rs.getString(3));
+                    }
+                }
+            }
+        }
+
+        int total = ids.cardinality();
+        FiltroBloomEscalable filtro = new FiltroBloomEscalable(
+                Math.max(leidos * 2, ConexionBBDD.getPropiedadEntera("filtro.emails.minimo", 10000)),
+                Double.parseDouble(ConexionBBDD.getPropiedad("filtro.emails.tasaFalsosPositivos", "0.01")));
+        for (int i = 0; i < leidos; i++) {
+            filtro.agregarHuella(huellas[i]);
+        }
+        filtroEmails = filtro;
+        INDICE.cargar(ids);
+        INDICE_TEXTO.marcarCargado();
+        OP_CARGAR_INDICE.registrar(inicio, sql, 0, total);
+        return total;
+    }
+
+    /**
+     * Busca clientes por el principio de las palabras de su nombre o su email
+     * (por ejemplo, "ana gar" o "ana@") con el índice de texto, y los lee de la
+     * caché.
+     *
+     * @param texto  El texto buscado.
+     * @param maximo Número máximo de clientes.
+     * @return Los clientes encontrados, los de coincidencia exacta primero.
+     * @throws SQLException Si hay un error al buscar los clientes.
+     */
+    public static List<Cliente> buscarPorTexto(String texto, int maximo) throws SQLException {
+        if (!INDICE_TEXTO.estaCargado()) {
+            // Registra la misma operación, con su sentencia SQL
+            return buscarPorTextoEnBBDD(texto, maximo);
+        }
+        long inicio = Metricas.iniciar();
+
+        List<Integer> ids = INDICE_TEXTO.buscar(texto, maximo);
+        Map<Integer, Cliente> porId = buscarPorIds(ids);
+        List<Cliente> clientes = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Cliente cliente = porId.get(id);
+            if (cliente != null) {
+                clientes.add(cliente);
+            }
+        }
+        OP_BUSCAR_TEXTO.registrar(inicio, clientes.size());
+        return clientes;
+    }
+
+    /**
+     * Busca clientes cuyo nombre o email contiene un texto, consultando la base
+     * de datos. Se usa mientras el índice de texto no está cargado.
+     *
+     * @param texto  El texto buscado.
+     * @param maximo Número máximo de clientes.
+     * @return Los clientes encontrados, por nombre.
+     * @throws SQLException Si hay un error al buscar los clientes.
+     */
+    private static List<Cliente> buscarPorTextoEnBBDD(String texto, int maximo) throws SQLException {
+        long inicio = Metricas.iniciar();
+        String sql = "SELECT id_cliente, nombre, email, telefono, dinero FROM cliente "
+                + "WHERE nombre LIKE ? OR email LIKE ? ORDER BY nombre LIMIT ?";
+        String patron = "%" + texto.trim() + "%";
+        List<Cliente> clientes = new ArrayList<>();
+
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, patron);
+            ps.setString(2, patron);
+            ps.setInt(3, maximo);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    try {
+                        clientes.add(new Cliente(
+                                rs.getInt("id_cliente"),
+                                rs.getString("nombre"),
+                                rs.getString("email"),
+                                rs.getString("telefono"),
+                                rs.getDouble("dinero")));
+                    } catch (DatoInvalidoException e) {
+                        System.err.println("ERROR de datos en el Cliente ID " + rs.getInt("id_cliente") + ": "
+                                + e.getMessage() + ". Este id ha sido OMITIDO de la lista.");
+                    }
+                }
+            }
+        }
+        OP_BUSCAR_TEXTO.registrar(inicio, sql, 3, clientes.size());
+        return clientes;
+    }
+
+    /**
+     * Vuelve a indexar el nombre y el email de un cliente tras modificarlos.
+     *
+     * @param con       La conexión a la base de datos.
+     * @param idCliente El ID del cliente.
+     * @throws SQLException Si hay un error al leer el cliente.
+     */
+    private static void reindexarTexto(Connection con, int idCliente) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("SELECT nombre, email FROM cliente WHERE id_cliente = ?")) {
+            ps.setInt(1, idCliente);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    INDICE_TEXTO.indexar(idCliente, rs.getString(1), rs.getString(2));
+                } else {
+                    INDICE_TEXTO.quitar(idCliente);
+                }
+            }
+        }
+    }
+
+    /**
+     * Descarta un cliente de la caché. Se llama cuando el cliente se modifica
+     * fuera de esta clase, como al cobrar o reembolsar una venta, y siempre
+     * después de confirmar la transacción: antes, otra lectura podría volver a
+     * cachear el saldo anterior.
+     *
+     * @param idCliente El ID del cliente.
+     */
+    public static void invalidarCache(int idCliente) {
+        CACHE.invalidar(idCliente);
+    }
+
     /**
      * Verifica si existe un cliente con el ID especificado.
+     * <p>
+     * Si el ID está en el índice de existencia no se consulta la base de datos.
+     * Si no está, se confirma con una consulta (el cliente puede haberse creado
+     * fuera de la aplicación) y, si existe, se añade al índice.
      *
      * @param id El ID del cliente a verificar.
      * @return true si el cliente existe, false en caso contrario.
      * @throws SQLException Si hay un error al verificar la existencia del cliente.
      */
     public static boolean existeCliente(int id) throws SQLException {
+        long inicio = Metricas.iniciar();
+        if (INDICE.contiene(id)) {
+            OP_EXISTE_INDICE.registrar(inicio, 1);
+            return true;
+        }
+
         String sql = "SELECT 1 FROM cliente WHERE id_cliente = ?";
         try (Connection con = ConexionBBDD.obtenerConexion();
                 PreparedStatement ps = con.prepareStatement(sql)) {
 
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next();
+                boolean existe = rs.next();
+                OP_EXISTE.registrar(inicio, sql, 1, existe ? 1 : 0);
+                if (existe && INDICE.estaCargado()) {
+                    INDICE.agregar(id);
+                }
+                return existe;
             }
         }
     }
 
+    /**
+     * Verifica si existe un cliente con un email, sin distinguir mayúsculas.
+     * <p>
+     * Si el filtro de emails dice que no está, no se consulta la base de datos;
+     * si dice que puede estar (o aún no se ha cargado), se confirma con una
+     * consulta.
+     *
+     * @param email El email a verificar.
+     * @return true si hay un cliente con ese email.
+     * @throws SQLException Si hay un error al consultar la base de datos.
+     */
+    public static boolean existeEmail(String email) throws SQLException {
+        return !emailsExistentes(List.of(email)).isEmpty();
+    }
+
+    /**
+     * Obtiene, de una colección de emails, los que ya tiene algún cliente, para
+     * comprobar duplicados en las altas masivas.
+     * <p>
+     * Los emails que el filtro descarta no se consultan; el resto se consultan
+     * con sentencias {@code IN (...)} de {@link GestionBBDD#tamanoIn()} emails.
+     *
+     * @param emails Los emails a verificar.
+     * @return Los emails existentes, en minúsculas y sin espacios en los
+     *         extremos.
+     * @throws SQLException Si hay un error al consultar la base de datos.
+     */
+    public static Set<String> emailsExistentes(Collection<String> emails) throws SQLException {
+        // Solo mide el filtro, sin sentencia SQL: no abre evento JFR
+        long inicio = System.nanoTime();
+        FiltroBloomEscalable filtro = filtroEmails;
+        List<String> candidatos = new ArrayList<>();
+        int descartados = 0;
+
+        for (String email : new LinkedHashSet<>(emails)) {
+            if (email == null) {
+                continue;
+            }
+            if (filtro != null && !filtro.puedeContener(email)) {
+                descartados++;
+            } else {
+                candidatos.add(email.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        if (descartados > 0) {
+            OP_EXISTE_EMAIL_FILTRO.registrar(inicio, descartados);
+        }
+
+        Set<String> existentes = new HashSet<>();
+        if (candidatos.isEmpty()) {
+            return existentes;
+        }
+
+        int tamano = GestionBBDD.tamanoIn();
+        String sql = "SELECT email FROM cliente WHERE email IN (" + "?, ".repeat(tamano - 1) + "?)";
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+
+            for (int desde = 0; desde < candidatos.size(); desde += tamano) {
+                long inicioConsulta = Metricas.iniciar();
+                int hasta = Math.min(desde + tamano, candidatos.size());
+                int filas = 0;
+
+                for (int i = 0; i < tamano; i++) {
+                    ps.setString(i + 1, candidatos.get(Math.min(desde + i, hasta - 1)));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        existentes.add(rs.getString(1).trim().toLowerCase(Locale.ROOT));
+                        filas++;
+                    }
+                }
+                OP_EXISTE_EMAIL.registrar(inicioConsulta, sql, tamano, filas);
+            }
+        }
+        return existentes;
+    }
+
     /**
      * Agrega la cantidad especificada al saldo del cliente.
      * * @param idCliente ID del cliente.
@@ -46,6 +404,7 @@ public class ClientesBBDD {
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      */
     public static boolean agregarDinero(int idCliente, double cantidad) throws SQLException {
+        long inicio = Metricas.iniciar();
         String sql = "UPDATE cliente SET dinero = dinero + ? WHERE id_cliente = ?";
 
         try (Connection con = ConexionBBDD.obtenerConexion();
@@ -54,10 +413,103 @@ public class ClientesBBDD {
             ps.setDouble(1, cantidad);
             ps.setInt(2, idCliente);
 
-            return ps.executeUpdate() > 0;
+            int filasAfectadas = ps.executeUpdate();
+            CACHE.invalidar(idCliente);
+            OP_AGREGAR_DINERO.registrar(inicio, sql, 2, filasAfectadas);
+            return filasAfectadas > 0;
         }
     }
 
+    /**
+     * Agrega dinero al saldo de muchos clientes, por lotes de
+     * {@code db.lote.tamano} actualizaciones confirmados por separado. Con
+     * {@code db.lote.reescribir} el driver envía cada lote en un solo viaje.
+     * <p>
+     * Si falla un lote se deshace solo ese lote; los anteriores ya están
+     * confirmados.
+     *
+     * @param cantidades Cantidad a sumar a cada cliente, por ID.
+     * @param progreso   Recibe el número de clientes procesados tras confirmar
+     *                   cada lote (puede ser null).
+     * @return El número de clientes actualizados (los IDs que no existen no
+     *         cuentan).
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static int agregarDineroLote(Map<Integer, Double> cantidades, IntConsumer progreso) throws SQLException {
+        String sql = "UPDATE cliente SET dinero = dinero + ? WHERE id_cliente = ?";
+        int tamanoLote = Math.max(1, ConexionBBDD.getPropiedadEntera("db.lote.tamano", 1000));
+        List<Integer> lote = new ArrayList<>(tamanoLote);
+        int actualizados = 0;
+        int procesados = 0;
+
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+
+            con.setAutoCommit(false);
+            try {
+                for (Map.Entry<Integer, Double> entrada : cantidades.entrySet()) {
+                    ps.setDouble(1, entrada.getValue());
+                    ps.setInt(2, entrada.getKey());
+                    ps.addBatch();
+                    lote.add(entrada.getKey());
+
+                    if (lote.size() == tamanoLote || procesados + lote.size() == cantidades.size()) {
+                        long inicio = Metricas.iniciar();
+                        int filas = contarFilas(ps.executeBatch());
+                        con.commit();
+
+                        for (Integer id : lote) {
+                            CACHE.invalidar(id);
+                        }
+                        OP_AGREGAR_DINERO_LOTE.registrar(inicio, sql, 2 * lote.size(), filas);
+                        actualizados += filas;
+                        procesados += lote.size();
+                        lote.clear();
+                        if (progreso != null) {
+                            progreso.accept(procesados);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            }
+        }
+        return actualizados;
+    }
+
+    /**
+     * Agrega dinero al saldo de muchos clientes, por lotes.
+     *
+     * @param cantidades Cantidad a sumar a cada cliente, por ID.
+     * @return El número de clientes actualizados.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     * @see #agregarDineroLote(Map, IntConsumer)
+     */
+    public static int agregarDineroLote(Map<Integer, Double> cantidades) throws SQLException {
+        return agregarDineroLote(cantidades, null);
+    }
+
+    /**
+     * Suma las filas afectadas por cada sentencia de un lote. Las sentencias
+     * de las que el driver no informa ({@link Statement#SUCCESS_NO_INFO})
+     * cuentan como una fila.
+     *
+     * @param resultados El resultado de {@code executeBatch}.
+     * @return El número de filas afectadas.
+     */
+    private static int contarFilas(int[] resultados) {
+        int filas = 0;
+        for (int resultado : resultados) {
+            if (resultado > 0) {
+                filas += resultado;
+            } else if (resultado == Statement.SUCCESS_NO_INFO) {
+                filas++;
+            }
+        }
+        return filas;
+    }
+
     /**
      * Resta la cantidad especificada al saldo del cliente, asegurando que el saldo
      * no quede negativo.
@@ -69,6 +521,7 @@ public class ClientesBBDD {
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      */
     public static boolean restarDinero(int idCliente, double cantidad) throws SQLException {
+        long inicio = Metricas.iniciar();
         String sql = "UPDATE cliente SET dinero = dinero - ? WHERE id_cliente = ?";
 
         try (Connection con = ConexionBBDD.obtenerConexion();
@@ -79,7 +532,10 @@ public class ClientesBBDD {
             ps.setDouble(3, cantidad);
 
             // Devuelve true si se actualizó exactamente 1 fila
-            return ps.executeUpdate() > 0;
+            int filasAfectadas = ps.executeUpdate();
+            CACHE.invalidar(idCliente);
+            OP_RESTAR_DINERO.registrar(inicio, sql, 2, filasAfectadas);
+            return filasAfectadas > 0;
         }
     }
 
@@ -90,6 +546,7 @@ public class ClientesBBDD {
      * @throws SQLException Si hay un error al contar los clientes.
      */
     public static int contarClientes() throws SQLException {
+        long inicio = Metricas.iniciar();
         String sql = "SELECT COUNT(*) FROM Cliente";
         int count = 0;
 
@@ -102,6 +559,7 @@ public class ClientesBBDD {
                 count = rs.getInt(1); // El COUNT(*) es la primera columna
             }
         }
+        OP_CONTAR.registrar(inicio, sql, 0, 1);
         return count;
     }
 
@@ -115,6 +573,7 @@ public class ClientesBBDD {
      * @throws DatoInvalidoException Si el campo es inválido.
      */
     public static List<Cliente> buscarPorCampo(String campo, Object valor) throws SQLException, DatoInvalidoException {
+        long inicio = Metricas.iniciar();
         String sql = "SELECT id_cliente, nombre, email, telefono, dinero FROM cliente WHERE " + campo + " = ?";
 
         List<Cliente> clientes = new ArrayList<>();
@@ -137,6 +596,74 @@ public class ClientesBBDD {
             }
         }
 
+        OP_BUSCAR.registrar(inicio, sql, 1, clientes.size());
+        return clientes;
+    }
+
+    /**
+     * Busca un cliente por su ID, consultando primero la caché.
+     * <p>
+     * El cliente devuelto puede estar compartido con otras llamadas, así que no
+     * se debe modificar.
+     *
+     * @param idCliente El ID del cliente.
+     * @return El cliente, o null si no existe.
+     * @throws SQLException          Si hay un error al buscar el cliente.
+     * @throws DatoInvalidoException Si los datos guardados del cliente son
+     *                               inválidos.
+     */
+    public static Cliente buscarPorId(int idCliente) throws SQLException, DatoInvalidoException {
+        Cliente cliente = CACHE.obtener(idCliente);
+        if (cliente == null) {
+            List<Cliente> resultados = buscarPorCampo("id_cliente", idCliente);
+            if (!resultados.isEmpty()) {
+                cliente = resultados.get(0);
+                CACHE.guardar(idCliente, cliente);
+            }
+        }
+        return cliente;
+    }
+
+    /**
+     * Busca varios clientes por su ID. Los que están en la caché no se
+     * consultan; el resto se cargan con consultas {@code IN (...)} por trozos y
+     * se guardan en la caché.
+     *
+     * @param ids Los IDs de los clientes.
+     * @return Los clientes encontrados por ID. Los IDs que no existen no
+     *         aparecen.
+     * @throws SQLException Si hay un error al buscar los clientes.
+     */
+    public static Map<Integer, Cliente> buscarPorIds(Collection<Integer> ids) throws SQLException {
+        Map<Integer, Cliente> clientes = new HashMap<>(ids.size() * 2);
+        List<Integer> pendientes = new ArrayList<>();
+
+        for (Integer id : ids) {
+            Cliente cliente = CACHE.obtener(id);
+            if (cliente != null) {
+                clientes.put(id, cliente);
+            } else {
+                pendientes.add(id);
+            }
+        }
+
+        if (!pendientes.isEmpty()) {
+            Map<Integer, Cliente> cargados = GestionBBDD.cargarPorIds(
+                    "SELECT id_cliente, nombre, email, telefono, dinero FROM cliente", "id_cliente", pendientes,
+                    rs -> new Cliente(
+                            rs.getInt("id_cliente"),
+                            rs.getString("nombre"),
+                            rs.getString("email"),
+                            rs.getString("telefono"),
+                            rs.getDouble("dinero")),
+                    OP_BUSCAR_IDS);
+
+            for (Cliente cliente : cargados.values()) {
+                CACHE.guardar(cliente.getId(), cliente);
+            }
+            clientes.putAll(cargados);
+        }
+
         return clientes;
     }
 
@@ -148,6 +675,7 @@ public class ClientesBBDD {
      * @throws SQLException Si hay un error al eliminar el cliente.
      */
     public static boolean eliminarCliente(int idCliente) throws SQLException {
+        long inicio = Metricas.iniciar();
         String sql = "DELETE FROM cliente WHERE id_cliente = ?";
 
         try (Connection con = ConexionBBDD.obtenerConexion();
@@ -156,6 +684,12 @@ public class ClientesBBDD {
             ps.setInt(1, idCliente);
 
             int filasAfectadas = ps.executeUpdate();
+            CACHE.invalidar(idCliente);
+            if (filasAfectadas > 0) {
+                INDICE.quitar(idCliente);
+                INDICE_TEXTO.quitar(idCliente);
+            }
+            OP_ELIMINAR.registrar(inicio, sql, 1, filasAfectadas);
             return filasAfectadas > 0; // true si se eliminó algo
         }
     }
@@ -170,6 +704,7 @@ public class ClientesBBDD {
      * @throws SQLException Si hay un error al actualizar el cliente.
      */
     public static boolean actualizarClienteCampo(int idCliente, String campo, Object valor) throws SQLException {
+        long inicio = Metricas.iniciar();
         String sql = "UPDATE cliente SET " + campo + " = ? WHERE id_cliente = ?";
 
         try (Connection con = ConexionBBDD.obtenerConexion();
@@ -179,6 +714,19 @@ public class ClientesBBDD {
             ps.setInt(2, idCliente);
 
             int filasAfectadas = ps.executeUpdate();
+            CACHE.invalidar(idCliente);
+            if (filasAfectadas > 0 && "id_cliente".equalsIgnoreCase(campo) && valor instanceof Number nuevoId) {
+                INDICE.quitar(idCliente);
+                INDICE.agregar(nuevoId.intValue());
+                INDICE_TEXTO.quitar(idCliente);
+                reindexarTexto(con, nuevoId.intValue());
+            } else if (filasAfectadas > 0 && ("nombre".equalsIgnoreCase(campo) || "email".equalsIgnoreCase(campo))) {
+                reindexarTexto(con, idCliente);
+                if ("email".equalsIgnoreCase(campo)) {
+                    agregarAlFiltro(String.valueOf(valor));
+                }
+            }
+            OP_ACTUALIZAR.registrar(inicio, sql, 2, filasAfectadas);
 
             if (filasAfectadas > 0) {
                 System.out.println("Clientes actualizado correctamente.");
@@ -197,6 +745,7 @@ public class ClientesBBDD {
      * @throws SQLException Si hay un error al obtener los clientes.
      */
     public static List<Cliente> obtenerClientes() throws SQLException {
+        long inicio = Metricas.iniciar();
         List<Cliente> clientes = new ArrayList<>();
 
         String sql = "SELECT id_cliente, nombre, email, telefono, dinero FROM cliente";
@@ -222,22 +771,53 @@ public class ClientesBBDD {
             }
         }
 
+        OP_OBTENER.registrar(inicio, sql, 0, clientes.size());
         return clientes;
     }
 
     /**
-     * Inserta un cliente en la base de datos.
+     * Obtiene una página de clientes ordenados por ID, paginando por clave
+     * primaria.
+     *
+     * @param referencia    ID de referencia ({@link Pagina#INICIO} para la
+     *                      primera página).
+     * @param haciaAdelante true para los clientes con ID mayor que la
+     *                      referencia, false para los de ID menor.
+     * @param tamano        Número de clientes por página.
+     * @return La página de clientes.
+     * @throws SQLException Si hay un error al obtener los clientes.
+     */
+    public static Pagina<Cliente> obtenerPagina(int referencia, boolean haciaAdelante, int tamano)
+            throws SQLException {
+        String sql = "SELECT id_cliente, nombre, email, telefono, dinero FROM cliente";
+
+        return GestionBBDD.cargarPagina(sql, "id_cliente", false, referencia, haciaAdelante, tamano,
+                rs -> new Cliente(
+                        rs.getInt("id_cliente"),
+                        rs.getString("nombre"),
+                        rs.getString("email"),
+                        rs.getString("telefono"),
+                        rs.getDouble("dinero")),
+                OP_PAGINA);
+    }
+
+    /**
+     * Inserta un cliente en la base de datos, le asigna el ID generado y lo
+     * añade a los índices y al filtro de emails. No se guarda en la caché: el
+     * objeto sigue siendo del llamador, que puede modificarlo; se carga en la
+     * caché al leerlo con {@link #buscarPorId(int)}.
      *
      * @param cliente El cliente a insertar.
      * @return true si se inserta correctamente, false en caso contrario.
      * @throws SQLException Si hay un error al insertar el cliente.
      */
     public static boolean insertarCliente(Cliente cliente) throws SQLException {
+        long inicio = Metricas.iniciar();
         boolean exito = false;
         String sql = "INSERT INTO cliente (nombre, email, telefono, dinero) VALUES (?, ?, ?, ?)";
 
         try (Connection con = ConexionBBDD.obtenerConexion();
-                PreparedStatement ps = con.prepareStatement(sql)) {
+                PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setString(1, cliente.getNombre());
             ps.setString(2, cliente.getEmail());
@@ -245,10 +825,191 @@ public class ClientesBBDD {
             ps.setDouble(4, cliente.getDinero());
 
             exito = ps.executeUpdate() > 0;
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) {
+                    cliente.setId(rs.getInt(1));
+                    INDICE.agregar(cliente.getId());
+                    INDICE_TEXTO.indexar(cliente.getId(), cliente.getNombre(), cliente.getEmail());
+                    agregarAlFiltro(cliente.getEmail());
+                }
+            }
         }
+        OP_INSERTAR.registrar(inicio, sql, 4, exito ? 1 : 0);
         return exito;
     }
 
+    /**
+     * Inserta clientes por lotes de {@code db.lote.tamano} filas, confirmando
+     * cada lote por separado. Con {@code db.lote.reescribir} el driver envía cada
+     * lote como un único INSERT de varias filas.
+     * <p>
+     * Antes de cada lote se descartan, con {@link #emailsExistentes(Collection)},
+     * los clientes cuyo email ya existe, y también los que repiten un email
+     * anterior de la misma carga; se añaden a {@code omitidos} y se quedan sin
+     * ID. A cada cliente insertado se le asigna el ID generado y se añade a los
+     * índices y al filtro de emails. No se guardan en la caché, para que una
+     * carga masiva no expulse a los clientes más consultados; se cargan al
+     * leerlos con {@link #buscarPorId(int)}. Si falla un lote se deshace solo
+     * ese lote; los anteriores ya están confirmados.
+     * <p>
+     * Si los clientes son una colección, el filtro de emails se amplía antes de
+     * empezar con sitio para todos ellos.
+     *
+     * @param clientes Los clientes a insertar.
+     * @param progreso Recibe el número de clientes procesados (insertados o
+     *                 descartados) tras confirmar cada lote (puede ser null).
+     * @param omitidos Lista donde se añaden los clientes descartados por email
+     *                 repetido (puede ser null).
+     * @return Los IDs generados, en el mismo orden que los clientes insertados.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static List<Integer> insertarClientes(Iterable<Cliente> clientes, IntConsumer progreso,
+            List<Cliente> omitidos) throws SQLException {
+        String sql = "INSERT INTO cliente (nombre, email, telefono, dinero) VALUES (?, ?, ?, ?)";
+        int tamanoLote = Math.max(1, ConexionBBDD.getPropiedadEntera("db.lote.tamano", 1000));
+        List<Integer> ids = new ArrayList<>();
+        List<Cliente> lote = new ArrayList<>(tamanoLote);
+        Set<String> vistos = new HashSet<>();
+        int procesados = 0;
+
+        FiltroBloomEscalable filtro = filtroEmails;
+        if (filtro != null && clientes instanceof Collection<Cliente> coleccion) {
+            filtro.reservar(coleccion.size());
+        }
+
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            con.setAutoCommit(false);
+            try {
+                Iterator<Cliente> iterador = clientes.iterator();
+                while (iterador.hasNext()) {
+                    lote.add(iterador.next());
+
+                    if (lote.size() == tamanoLote || !iterador.hasNext()) {
+                        procesados += lote.size();
+                        ejecutarLote(con, ps, sql, lote, vistos, ids, omitidos);
+                        if (progreso != null) {
+                            progreso.accept(procesados);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Inserta clientes por lotes e informa al final, en una sola línea, de
+     * cuántos se han descartado por email repetido.
+     *
+     * @param clientes Los clientes a insertar.
+     * @param progreso Recibe el número de clientes procesados tras confirmar
+     *                 cada lote (puede ser null).
+     * @return Los IDs generados, en el mismo orden que los clientes insertados.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     * @see #insertarClientes(Iterable, IntConsumer, List)
+     */
+    public static List<Integer> insertarClientes(Iterable<Cliente> clientes, IntConsumer progreso)
+            throws SQLException {
+        List<Cliente> omitidos = new ArrayList<>();
+        List<Integer> ids = insertarClientes(clientes, progreso, omitidos);
+        if (!omitidos.isEmpty()) {
+            System.err.println(omitidos.size() + " clientes OMITIDOS: ya existía un cliente con su email.");
+        }
+        return ids;
+    }
+
+    /**
+     * Inserta clientes por lotes.
+     *
+     * @param clientes Los clientes a insertar.
+     * @return Los IDs generados, en el mismo orden que los clientes insertados.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     * @see #insertarClientes(Iterable, IntConsumer)
+     */
+    public static List<Integer> insertarClientes(Iterable<Cliente> clientes) throws SQLException {
+        return insertarClientes(clientes, null);
+    }
+
+    /**
+     * Descarta los emails repetidos del lote pendiente, lo ejecuta y confirma, y
+     * recoge los IDs generados.
+     *
+     * @param con      La conexión con la transacción del lote.
+     * @param ps       La sentencia de inserción.
+     * @param sql      El SQL de la sentencia.
+     * @param lote     Los clientes del lote; se vacía al terminar.
+     * @param vistos   Emails ya insertados en esta carga, en minúsculas.
+     * @param ids      Lista donde se añaden los IDs generados.
+     * @param omitidos Lista donde se añaden los clientes descartados (puede ser
+     *                 null).
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static void ejecutarLote(Connection con, PreparedStatement ps, String sql, List<Cliente> lote,
+            Set<String> vistos, List<Integer> ids, List<Cliente> omitidos) throws SQLException {
+        long inicio = Metricas.iniciar();
+        List<String> emails = new ArrayList<>(lote.size());
+        for (Cliente cliente : lote) {
+            emails.add(cliente.getEmail());
+        }
+        Set<String> existentes = emailsExistentes(emails);
+
+        List<Cliente> insertados = new ArrayList<>(lote.size());
+        for (Cliente cliente : lote) {
+            String email = cliente.getEmail().trim().toLowerCase(Locale.ROOT);
+            if (existentes.contains(email) || !vistos.add(email)) {
+                if (omitidos != null) {
+                    omitidos.add(cliente);
+                }
+                continue;
+            }
+            ps.setString(1, cliente.getNombre());
+            ps.setString(2, cliente.getEmail());
+            ps.setString(3, cliente.getTelefono());
+            ps.setDouble(4, cliente.getDinero());
+            ps.addBatch();
+            insertados.add(cliente);
+        }
+        lote.clear();
+        if (insertados.isEmpty()) {
+            OP_INSERTAR_LOTE.registrar(inicio, 0);
+            return;
+        }
+
+        ps.executeBatch();
+        con.commit();
+
+        int i = 0;
+        try (ResultSet rs = ps.getGeneratedKeys()) {
+            while (rs.next() && i < insertados.size()) {
+                Cliente cliente = insertados.get(i++);
+                cliente.setId(rs.getInt(1));
+                INDICE.agregar(cliente.getId());
+                INDICE_TEXTO.indexar(cliente.getId(), cliente.getNombre(), cliente.getEmail());
+                agregarAlFiltro(cliente.getEmail());
+                ids.add(cliente.getId());
+            }
+        }
+
+        OP_INSERTAR_LOTE.registrar(inicio, sql, 4 * insertados.size(), insertados.size());
+    }
+
+    /**
+     * Añade un email al filtro de emails, si ya está cargado.
+     *
+     * @param email El email.
+     */
+    private static void agregarAlFiltro(String email) {
+        FiltroBloomEscalable filtro = filtroEmails;
+        if (filtro != null) {
+            filtro.agregar(email);
+        }
+    }
+
     /**
      * Imprime la tabla de clientes usando metadatos.
      */
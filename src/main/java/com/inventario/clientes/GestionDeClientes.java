@@ -4,6 +4,7 @@ import java.sql.SQLException;
 import java.util.List;
 import java.util.Scanner;
 
+import com.inventario.bbdd.GestionBBDD;
 import com.inventario.excepciones.DatoInvalidoException;
 import com.inventario.util.Util;
 
@@ -224,6 +225,23 @@ public class GestionDeClientes {
         ClientesBBDD.imprimirClientes();
     }
 
+    /**
+     * Lista los clientes por páginas, con navegación hacia delante y hacia atrás.
+     *
+     * @param scanner El scanner para la entrada del usuario.
+     * @throws SQLException Si hay un error al obtener los clientes.
+     */
+    private static void listarClientesPorPaginas(Scanner scanner) throws SQLException {
+        System.out.println("\n--- LISTADO DE CLIENTES ---");
+        int tamano = GestionBBDD.tamanoPagina();
+
+        GestionBBDD.navegarPaginas(scanner,
+                String.format("%-6s | %-25s | %-30s | %-15s | %10s", "ID", "NOMBRE", "EMAIL", "TELÉFONO", "DINERO"),
+                (referencia, haciaAdelante) -> ClientesBBDD.obtenerPagina(referencia, haciaAdelante, tamano),
+                c -> String.format("%-6d | %-25s | %-30s | %-15s | %10.2f",
+                        c.getId(), c.getNombre(), c.getEmail(), c.getTelefono(), c.getDinero()));
+    }
+
     /**
      * Inserta un nuevo cliente.
      *
@@ -245,6 +263,11 @@ public class GestionDeClientes {
             // Crear el objeto cliente con validación interna
             Cliente nuevoCliente = new Cliente(nombre, email, telefono, dinero);
 
+            if (ClientesBBDD.existeEmail(email)) {
+                System.out.println("Ya existe un cliente con ese email.");
+                return false;
+            }
+
             // Insertar en la base de datos
             ClientesBBDD.insertarCliente(nuevoCliente);
 
@@ -290,7 +313,7 @@ public class GestionDeClientes {
                 case 3 -> eliminarCliente(scanner);
                 case 4 -> {
                     try {
-                        listarClientes();
+                        listarClientesPorPaginas(scanner);
                     } catch (SQLException e) {
                         System.err.println("Error al listar clientes: " + e.getMessage());
                     }
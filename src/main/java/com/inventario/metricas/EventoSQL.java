@@ -0,0 +1,155 @@
+package com.inventario.metricas;
+
+import java.util.ArrayDeque;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Evento de Java Flight Recorder que se emite por cada sentencia SQL.
+ * <p>
+ * El evento se abre con {@link Metricas#iniciar()} antes de ejecutar la
+ * sentencia y se cierra al registrarla en su {@link Operacion}, así que su
+ * inicio y su duración en JFR son los de la sentencia y se puede cruzar con
+ * los eventos de GC o de CPU. Solo se crea cuando hay una grabación activa con
+ * el evento habilitado; sin grabación el coste es una comprobación.
+ * <p>
+ * Por defecto se graban todas las sentencias; para grabar solo las lentas se
+ * usa el umbral de JFR, por ejemplo
+ * {@code -XX:StartFlightRecording:com.inventario.SentenciaSQL#threshold=20ms}
+ * o un archivo .jfc.
+ */
+@Name("com.inventario.SentenciaSQL")
+@Label("Sentencia SQL")
+@Category({ "Inventario", "JDBC" })
+@Description("Ejecución de una sentencia SQL desde una clase de acceso a datos.")
+@StackTrace(false)
+@Threshold("0 ms")
+public class EventoSQL extends Event {
+
+    /**
+     * Tipo del evento, para saber si alguna grabación lo tiene habilitado.
+     */
+    private static final EventType TIPO = EventType.getEventType(EventoSQL.class);
+
+    /**
+     * Máximo de eventos abiertos por hilo; si se supera (eventos que no se
+     * llegaron a registrar) se descartan todos.
+     */
+    private static final int MAXIMO_ABIERTOS = 16;
+
+    /**
+     * Eventos abiertos en cada hilo, el más reciente primero.
+     */
+    private static final ThreadLocal<ArrayDeque<EventoSQL>> ABIERTOS = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * Método de acceso a datos que lanzó la sentencia.
+     */
+    @Label("Método DAO")
+    String metodo;
+
+    /**
+     * Texto SQL con los parámetros sin sustituir.
+     */
+    @Label("SQL")
+    String sql;
+
+    /**
+     * Número de parámetros enlazados.
+     */
+    @Label("Parámetros")
+    int parametros;
+
+    /**
+     * Filas devueltas o afectadas.
+     */
+    @Label("Filas")
+    long filas;
+
+    /**
+     * Valor de {@link System#nanoTime()} al abrirlo, para encontrarlo al
+     * registrar la sentencia (no se graba).
+     */
+    transient long inicioNanos;
+
+    /**
+     * Abre un evento en el hilo actual si JFR lo tiene habilitado.
+     *
+     * @return Valor de {@link System#nanoTime()} al empezar.
+     */
+    static long abrir() {
+        long inicio = System.nanoTime();
+        if (TIPO.isEnabled()) {
+            ArrayDeque<EventoSQL> abiertos = ABIERTOS.get();
+            if (abiertos.size() >= MAXIMO_ABIERTOS) {
+                abiertos.clear();
+            }
+            EventoSQL evento = new EventoSQL();
+            evento.inicioNanos = inicio;
+            evento.begin();
+            abiertos.push(evento);
+        }
+        return inicio;
+    }
+
+    /**
+     * Cierra el evento abierto en el instante indicado y lo emite si supera el
+     * umbral de la grabación.
+     *
+     * @param inicioNanos Valor devuelto por {@link #abrir()}.
+     * @param metodo      Método DAO.
+     * @param sql         Texto SQL.
+     * @param parametros  Parámetros enlazados.
+     * @param filas       Filas devueltas o afectadas.
+     */
+    static void cerrar(long inicioNanos, String metodo, String sql, int parametros, long filas) {
+        EventoSQL evento = sacar(inicioNanos);
+        if (evento != null) {
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.metodo = metodo;
+                evento.sql = sql;
+                evento.parametros = parametros;
+                evento.filas = filas;
+                evento.commit();
+            }
+        }
+    }
+
+    /**
+     * Descarta sin emitirlo el evento abierto en el instante indicado, cuando
+     * la ejecución no ha lanzado ninguna sentencia.
+     *
+     * @param inicioNanos Valor devuelto por {@link #abrir()}.
+     */
+    static void descartar(long inicioNanos) {
+        sacar(inicioNanos);
+    }
+
+    /**
+     * Quita de la pila del hilo el evento abierto en el instante indicado,
+     * junto con los abiertos después que no se llegaron a registrar.
+     *
+     * @param inicioNanos Valor devuelto por {@link #abrir()}.
+     * @return El evento, o null si no hay ninguno abierto en ese instante.
+     */
+    private static EventoSQL sacar(long inicioNanos) {
+        ArrayDeque<EventoSQL> abiertos = ABIERTOS.get();
+        for (EventoSQL evento : abiertos) {
+            if (evento.inicioNanos == inicioNanos) {
+                while (abiertos.pop() != evento) {
+                    // Se descartan los abiertos después de este
+                }
+                return evento;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,167 @@
+package com.inventario.metricas;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registro de métricas de la aplicación.
+ * <p>
+ * Todas las métricas se publican como MBeans bajo el dominio
+ * {@code com.inventario} y se pueden consultar con JConsole o VisualVM, además
+ * de con la opción "Métricas" del menú principal.
+ */
+public class Metricas {
+
+    /**
+     * Dominio JMX de las métricas.
+     */
+    private static final String DOMINIO = "com.inventario";
+
+    /**
+     * Operaciones registradas, por nombre.
+     */
+    private static final Map<String, Operacion> OPERACIONES = new LinkedHashMap<>();
+
+    /**
+     * Otros componentes registrados (pool, cachés...), por nombre JMX.
+     */
+    private static final Map<ObjectName, String> COMPONENTES = new LinkedHashMap<>();
+
+    /**
+     * Obtiene (o crea y registra) las métricas de una operación. Se debe llamar
+     * una vez y guardar el resultado en una constante.
+     *
+     * @param nombre Nombre de la operación, por ejemplo
+     *               "ProductosBBDD.buscarPorCampo".
+     * @return Las métricas de la operación.
+     */
+    public static synchronized Operacion operacion(String nombre) {
+        Operacion operacion = OPERACIONES.get(nombre);
+        if (operacion == null) {
+            operacion = new Operacion(nombre);
+            OPERACIONES.put(nombre, operacion);
+            registrarMBean(operacion, "type=Operacion,name=" + nombre);
+        }
+        return operacion;
+    }
+
+    /**
+     * Marca el inicio de una ejecución que se registrará en una
+     * {@link Operacion}. Si hay una grabación de JFR activa, abre también el
+     * evento de la sentencia, que se cierra al registrarla.
+     *
+     * @return Valor de {@link System#nanoTime()} al empezar.
+     */
+    public static long iniciar() {
+        return EventoSQL.abrir();
+    }
+
+    /**
+     * Registra un componente con su propia interfaz MBean para que aparezca en JMX
+     * y en el informe de métricas. Si ya había uno con el mismo nombre se
+     * sustituye.
+     *
+     * @param titulo Título que se muestra en el informe.
+     * @param nombre Nombre JMX sin dominio, por ejemplo "type=Pool".
+     * @param mbean  Objeto que implementa una interfaz *MBean.
+     */
+    public static synchronized void registrarComponente(String titulo, String nombre, Object mbean) {
+        ObjectName objectName = registrarMBean(mbean, nombre);
+        if (objectName != null) {
+            COMPONENTES.put(objectName, titulo);
+        }
+    }
+
+    /**
+     * Pone a cero las métricas de todas las operaciones.
+     */
+    public static synchronized void reiniciar() {
+        for (Operacion operacion : OPERACIONES.values()) {
+            operacion.reiniciar();
+        }
+    }
+
+    /**
+     * Imprime el estado de los componentes y las latencias de las operaciones.
+     */
+    public static void imprimirInforme() {
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        List<Operacion> operaciones;
+        Map<ObjectName, String> componentes;
+
+        synchronized (Metricas.class) {
+            operaciones = new ArrayList<>(OPERACIONES.values());
+            componentes = new LinkedHashMap<>(COMPONENTES);
+        }
+
+        System.out.println("\n========== MÉTRICAS ==========");
+
+        for (Map.Entry<ObjectName, String> componente : componentes.entrySet()) {
+            System.out.println("\n--- " + componente.getValue() + " ---");
+            try {
+                for (MBeanAttributeInfo atributo : servidor.getMBeanInfo(componente.getKey()).getAttributes()) {
+                    Object valor = servidor.getAttribute(componente.getKey(), atributo.getName());
+                    System.out.printf("%-30s %s\n", atributo.getName(), valor);
+                }
+            } catch (JMException e) {
+                System.err.println("No se pudo leer el componente: " + e.getMessage());
+            }
+        }
+
+        System.out.println("\n--- Operaciones (latencias en ms) ---");
+        System.out.printf("%-40s | %10s | %10s | %9s | %9s | %9s | %9s\n", "OPERACIÓN", "LLAMADAS", "FILAS", "P50",
+                "P99", "P99.9", "MÁX");
+        System.out.println("-".repeat(115));
+
+        boolean hayDatos = false;
+        for (Operacion op : operaciones) {
+            if (op.getLlamadas() > 0) {
+                hayDatos = true;
+                System.out.printf("%-40s | %10d | %10d | %9.3f | %9.3f | %9.3f | %9.3f\n",
+                        op.getNombre(),
+                        op.getLlamadas(),
+                        op.getFilas(),
+                        op.getP50Micros() / 1000.0,
+                        op.getP99Micros() / 1000.0,
+                        op.getP999Micros() / 1000.0,
+                        op.getMaxMicros() / 1000.0);
+            }
+        }
+
+        if (!hayDatos) {
+            System.out.println("Todavía no se ha registrado ninguna operación.");
+        }
+    }
+
+    /**
+     * Registra un MBean en el servidor de la plataforma, sustituyendo el anterior
+     * si existía.
+     *
+     * @param mbean  Objeto a registrar.
+     * @param nombre Nombre JMX sin dominio.
+     * @return El nombre registrado, o null si no se pudo registrar.
+     */
+    private static ObjectName registrarMBean(Object mbean, String nombre) {
+        ObjectName objectName = null;
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName(DOMINIO + ":" + nombre);
+            if (servidor.isRegistered(objectName)) {
+                servidor.unregisterMBean(objectName);
+            }
+            servidor.registerMBean(mbean, objectName);
+        } catch (JMException e) {
+            System.err.println("No se pudo registrar la métrica '" + nombre + "' en JMX: " + e.getMessage());
+            objectName = null;
+        }
+        return objectName;
+    }
+}
@@ -0,0 +1,118 @@
+package com.inventario.metricas;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Métricas de una operación: latencias y filas.
+ * <p>
+ * Las instancias se obtienen con {@link Metricas#operacion(String)} y se
+ * guardan en constantes, de modo que registrar una ejecución no reserva
+ * memoria.
+ */
+public class Operacion implements OperacionMBean {
+
+    /**
+     * Nombre de la operación (normalmente Clase.metodo).
+     */
+    private final String nombre;
+
+    /**
+     * Latencias de las ejecuciones.
+     */
+    private final HistogramaLatencia latencias = new HistogramaLatencia();
+
+    /**
+     * Filas devueltas o afectadas.
+     */
+    private final AtomicLong filas = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param nombre Nombre de la operación.
+     */
+    Operacion(String nombre) {
+        this.nombre = nombre;
+    }
+
+    /**
+     * Registra una ejecución que empezó en el instante indicado y termina ahora.
+     *
+     * @param inicioNanos Valor de {@link Metricas#iniciar()} o de
+     *                    {@link System#nanoTime()} al empezar.
+     * @param filas       Filas devueltas o afectadas.
+     */
+    public void registrar(long inicioNanos, long filas) {
+        latencias.registrar(System.nanoTime() - inicioNanos);
+        this.filas.addAndGet(filas);
+        EventoSQL.descartar(inicioNanos);
+    }
+
+    /**
+     * Registra una ejecución de una sola sentencia SQL y emite su evento JFR.
+     *
+     * @param inicioNanos Valor de {@link Metricas#iniciar()} al empezar.
+     * @param sql         Texto SQL con los parámetros sin sustituir.
+     * @param parametros  Número de parámetros enlazados.
+     * @param filas       Filas devueltas o afectadas.
+     */
+    public void registrar(long inicioNanos, String sql, int parametros, long filas) {
+        latencias.registrar(System.nanoTime() - inicioNanos);
+        this.filas.addAndGet(filas);
+        EventoSQL.cerrar(inicioNanos, nombre, sql, parametros, filas);
+    }
+
+    /**
+     * Emite el evento JFR de una sentencia que forma parte de una operación
+     * mayor, sin contarla en el histograma de la operación.
+     *
+     * @param inicioNanos Valor de {@link Metricas#iniciar()} al empezar.
+     * @param sql         Texto SQL con los parámetros sin sustituir.
+     * @param parametros  Número de parámetros enlazados.
+     * @param filas       Filas devueltas o afectadas.
+     */
+    public void registrarSentencia(long inicioNanos, String sql, int parametros, long filas) {
+        EventoSQL.cerrar(inicioNanos, nombre, sql, parametros, filas);
+    }
+
+    @Override
+    public String getNombre() {
+        return nombre;
+    }
+
+    @Override
+    public long getLlamadas() {
+        return latencias.getTotal();
+    }
+
+    @Override
+    public long getFilas() {
+        return filas.get();
+    }
+
+    @Override
+    public long getP50Micros() {
+        return latencias.percentil(50) / 1000;
+    }
+
+    @Override
+    public long getP99Micros() {
+        return latencias.percentil(99) / 1000;
+    }
+
+    @Override
+    public long getP999Micros() {
+        return latencias.percentil(99.9) / 1000;
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return latencias.getMaximo() / 1000;
+    }
+
+    @Override
+    public void reiniciar() {
+        latencias.reiniciar();
+        filas.set(0);
+    }
+}
@@ -0,0 +1,61 @@
+package com.inventario.metricas;
+
+/**
+ * Interfaz JMX de las métricas de una operación.
+ */
+public interface OperacionMBean {
+
+    /**
+     * Obtiene el nombre de la operación.
+     *
+     * @return Nombre de la operación.
+     */
+    String getNombre();
+
+    /**
+     * Obtiene el número de ejecuciones registradas.
+     *
+     * @return Número de ejecuciones.
+     */
+    long getLlamadas();
+
+    /**
+     * Obtiene el número total de filas devueltas o afectadas.
+     *
+     * @return Filas acumuladas.
+     */
+    long getFilas();
+
+    /**
+     * Obtiene la mediana de la latencia.
+     *
+     * @return Percentil 50 en microsegundos.
+     */
+    long getP50Micros();
+
+    /**
+     * Obtiene el percentil 99 de la latencia.
+     *
+     * @return Percentil 99 en microsegundos.
+     */
+    long getP99Micros();
+
+    /**
+     * Obtiene el percentil 99,9 de la latencia.
+     *
+     * @return Percentil 99,9 en microsegundos.
+     */
+    long getP999Micros();
+
+    /**
+     * Obtiene la latencia máxima.
+     *
+     * @return Máximo en microsegundos.
+     */
+    long getMaxMicros();
+
+    /**
+     * Pone a cero las métricas de la operación.
+     */
+    void reiniciar();
+}
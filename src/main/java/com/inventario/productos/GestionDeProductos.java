@@ -1,9 +1,15 @@
 package com.inventario.productos;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Scanner;
 
+import com.inventario.bbdd.ConexionBBDD;
+import com.inventario.bbdd.GestionBBDD;
 import com.inventario.excepciones.DatoInvalidoException;
 import com.inventario.util.Util;
 
@@ -22,15 +28,13 @@ public class GestionDeProductos {
         int id = Util.pedirNumeroMinimo(scanner, "Introduce el ID del producto:", 1);
 
         try {
-            List<Producto> resultados = ProductosBBDD.buscarPorCampo("id_producto", id);
+            Producto p = ProductosBBDD.buscarPorId(id);
 
-            if (resultados.isEmpty()) {
+            if (p == null) {
                 System.out.println("No se encontró ningún producto con ese ID.");
 
             } else {
 
-                Producto p = resultados.get(0);
-
                 System.out.println("\nProducto encontrado:");
                 System.out.println("ID: " + p.getId());
                 System.out.println("Nombre: " + p.getNombre());
@@ -146,6 +150,53 @@ public class GestionDeProductos {
         ProductosBBDD.imprimirProductos();
     }
 
+    /**
+     * Lista los productos por páginas, con navegación hacia delante y hacia atrás.
+     *
+     * @param scanner El scanner para leer la entrada del usuario.
+     * @throws SQLException Si ocurre un error al obtener los productos.
+     */
+    private static void listarProductosPorPaginas(Scanner scanner) throws SQLException {
+        System.out.println("\n--- LISTADO DE PRODUCTOS ---");
+        int tamano = GestionBBDD.tamanoPagina();
+
+        GestionBBDD.navegarPaginas(scanner,
+                String.format("%-6s | %-25s | %-30s | %10s | %6s", "ID", "NOMBRE", "DESCRIPCIÓN", "PRECIO", "STOCK"),
+                (referencia, haciaAdelante) -> ProductosBBDD.obtenerPagina(referencia, haciaAdelante, tamano),
+                p -> String.format("%-6d | %-25s | %-30s | %10.2f | %6d",
+                        p.getId(), p.getNombre(), p.getDescripcion(), p.getPrecio(), p.getStock()));
+    }
+
+    /**
+     * Busca productos por una parte de su nombre o su descripción y los
+     * muestra del más al menos parecido.
+     *
+     * @param scanner El scanner para leer la entrada del usuario.
+     */
+    private static void buscarProductosPorTexto(Scanner scanner) {
+        System.out.println("\n--- BUSCAR PRODUCTOS POR TEXTO ---");
+
+        String texto = Util.pedirTexto(scanner, "Texto a buscar (nombre o descripción):");
+        int maximo = Math.max(1, ConexionBBDD.getPropiedadEntera("busqueda.maximo", 10));
+
+        try {
+            List<Producto> productos = ProductosBBDD.buscarPorTexto(texto, maximo);
+            if (productos.isEmpty()) {
+                System.out.println("No se encontró ningún producto parecido.");
+                return;
+            }
+
+            System.out.println(String.format("%-6s | %-25s | %-30s | %10s | %6s",
+                    "ID", "NOMBRE", "DESCRIPCIÓN", "PRECIO", "STOCK"));
+            for (Producto p : productos) {
+                System.out.println(String.format("%-6d | %-25s | %-30s | %10.2f | %6d",
+                        p.getId(), p.getNombre(), p.getDescripcion(), p.getPrecio(), p.getStock()));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al buscar productos: " + e.getMessage());
+        }
+    }
+
     /**
      * Inserta un nuevo producto.
      *
@@ -176,6 +227,39 @@ public class GestionDeProductos {
         }
     }
 
+    /**
+     * Importa un catálogo de productos desde un archivo CSV.
+     *
+     * @param scanner El scanner para leer la entrada del usuario.
+     */
+    private static void importarCatalogo(Scanner scanner) {
+        System.out.println("\n--- IMPORTAR CATÁLOGO ---");
+        System.out.println("Formato: nombre,descripcion,precio,stock (cabecera opcional).");
+
+        Path archivo = Paths.get(Util.pedirTexto(scanner, "Ruta del archivo CSV:"));
+
+        if (!Files.isRegularFile(archivo)) {
+            System.out.println("No existe el archivo " + archivo);
+        } else {
+            ImportadorCatalogo importador = new ImportadorCatalogo(archivo);
+            try {
+                importador.importar();
+                System.out.println("Importación terminada.");
+            } catch (IOException e) {
+                System.err.println("Error al leer el archivo: " + e.getMessage());
+            } catch (SQLException e) {
+                System.err.println("Error al insertar los productos en la base de datos: " + e.getMessage());
+            }
+
+            System.out.println("Líneas leídas: " + importador.getLeidas());
+            System.out.println("Productos insertados: " + importador.getInsertados());
+            System.out.println("Filas rechazadas: " + importador.getRechazadas());
+            if (importador.getRechazadas() > 0) {
+                System.out.println("Detalle de los rechazos en " + importador.getArchivoRechazos());
+            }
+        }
+    }
+
     /**
      * Muestra el menú de productos.
      *
@@ -191,11 +275,13 @@ public class GestionDeProductos {
             System.out.println("3. Eliminar producto");
             System.out.println("4. Listar productos");
             System.out.println("5. Buscar producto por ID");
+            System.out.println("6. Importar catálogo (CSV)");
+            System.out.println("7. Buscar productos por texto");
             System.out.println("0. Volver al menú principal");
             System.out.println("===================================");
             System.out.print("Selecciona una opción: ");
 
-            opcion = Util.pedirNumeroConRango(scanner, "", 0, 5);
+            opcion = Util.pedirNumeroConRango(scanner, "", 0, 7);
 
             switch (opcion) {
                 case 1 -> insertarProducto(scanner);
@@ -203,12 +289,14 @@ public class GestionDeProductos {
                 case 3 -> eliminarProducto(scanner);
                 case 4 -> {
                     try {
-                        listarProductos();
+                        listarProductosPorPaginas(scanner);
                     } catch (SQLException e) {
                         System.err.println("Error al listar productos: " + e.getMessage());
                     }
                 }
                 case 5 -> buscarProductoPorId(scanner);
+                case 6 -> importarCatalogo(scanner);
+                case 7 -> buscarProductosPorTexto(scanner);
                 case 0 -> System.out.println("Volviendo al menú principal...");
                 default -> System.out.println("Opción no válida.");
             }
@@ -0,0 +1,462 @@
+package com.inventario.productos;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.inventario.bbdd.ConexionBBDD;
+import com.inventario.excepciones.DatoInvalidoException;
+
+/**
+ * Importa un catálogo de productos desde un archivo CSV.
+ * <p>
+ * El archivo se lee en streaming desde un canal NIO en el hilo que llama a
+ * {@link #importar()}, y los productos válidos se pasan en lotes a un hilo
+ * escritor que los inserta con {@link ProductosBBDD#insertarProductos(List)}.
+ * La cola entre ambos hilos es acotada, así que la memoria usada no depende del
+ * tamaño del archivo.
+ * <p>
+ * Formato: {@code nombre,descripcion,precio,stock}, con una cabecera opcional
+ * y campos entre comillas dobles si contienen comas. Las filas inválidas se
+ * escriben en {@code <archivo>.rechazos.csv} con su número de línea y el
+ * motivo: las que no se pueden decodificar como UTF-8, las que no pasan las
+ * validaciones de {@link Producto} y las que rechaza la base de datos (por
+ * ejemplo un nombre demasiado largo). Una fila rechazada no detiene la carga.
+ */
+public class ImportadorCatalogo {
+
+    /**
+     * Lote que indica al hilo escritor que no hay más productos.
+     */
+    private static final List<Fila> FIN = new ArrayList<>();
+
+    /**
+     * Tamaño del buffer de lectura y escritura.
+     */
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    /**
+     * Lotes que pueden esperar en la cola al hilo escritor.
+     */
+    private static final int LOTES_EN_COLA = 4;
+
+    /**
+     * Carácter con el que el decodificador sustituye los bytes que no son UTF-8.
+     */
+    private static final char CARACTER_INVALIDO = '\uFFFD';
+
+    /**
+     * Archivo CSV a importar.
+     */
+    private final Path archivo;
+
+    /**
+     * Archivo donde se escriben las filas rechazadas.
+     */
+    private final Path archivoRechazos;
+
+    /**
+     * Productos por lote.
+     */
+    private final int tamanoLote;
+
+    /**
+     * Lotes pendientes de insertar.
+     */
+    private final BlockingQueue<List<Fila>> cola = new ArrayBlockingQueue<>(LOTES_EN_COLA);
+
+    /**
+     * Líneas de datos leídas (sin contar la cabecera).
+     */
+    private long leidas;
+
+    /**
+     * Filas rechazadas, por el hilo lector o por el escritor (protegido por
+     * {@link #rechazar}).
+     */
+    private long rechazadas;
+
+    /**
+     * Archivo de rechazos abierto durante la importación; escriben en él los
+     * dos hilos a través de {@link #rechazar}.
+     */
+    private BufferedWriter rechazos;
+
+    /**
+     * Productos insertados por el hilo escritor.
+     */
+    private volatile long insertados;
+
+    /**
+     * Error que detuvo al hilo escritor, si lo hubo: un {@link SQLException}
+     * de conexión, un {@link IOException} al escribir los rechazos o un error
+     * inesperado.
+     */
+    private volatile Exception errorEscritura;
+
+    /**
+     * Indica que el hilo escritor ha terminado, para no esperar a encolar en
+     * una cola que ya nadie vacía.
+     */
+    private volatile boolean escritorTerminado;
+
+    /**
+     * Crea un importador para un archivo.
+     *
+     * @param archivo Ruta del archivo CSV.
+     */
+    public ImportadorCatalogo(Path archivo) {
+        this.archivo = archivo;
+        this.archivoRechazos = archivo.resolveSibling(archivo.getFileName() + ".rechazos.csv");
+        this.tamanoLote = Math.max(1, ConexionBBDD.getPropiedadEntera("db.lote.tamano", 1000));
+    }
+
+    /**
+     * Importa el archivo.
+     *
+     * @throws IOException  Si no se puede leer el archivo o escribir los
+     *                      rechazos.
+     * @throws SQLException Si se pierde la conexión con la base de datos. Los
+     *                      lotes anteriores quedan insertados.
+     */
+    public void importar() throws IOException, SQLException {
+        // Los bytes que no son UTF-8 se sustituyen por U+FFFD y la línea se rechaza
+        CharsetDecoder decodificador = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ);
+                BufferedReader lector = new BufferedReader(
+                        Channels.newReader(canal, decodificador, TAMANO_BUFFER), TAMANO_BUFFER);
+                BufferedWriter salidaRechazos = Files.newBufferedWriter(archivoRechazos, StandardCharsets.UTF_8)) {
+
+            rechazos = salidaRechazos;
+            rechazos.write("linea,motivo,contenido\n");
+
+            Thread escritor = new Thread(this::escribirLotes, "importador-catalogo-escritor");
+            escritor.start();
+            try {
+                leerLineas(lector);
+            } finally {
+                encolar(FIN);
+                try {
+                    escritor.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } finally {
+            rechazos = null;
+        }
+
+        Exception error = errorEscritura;
+        if (error instanceof SQLException e) {
+            throw e;
+        } else if (error instanceof IOException e) {
+            throw e;
+        } else if (error instanceof RuntimeException e) {
+            throw e;
+        }
+    }
+
+    /**
+     * Lee las líneas del archivo, rechaza las inválidas y encola las válidas
+     * en lotes, hasta el final del archivo o hasta que falla el escritor.
+     *
+     * @param lector Lector del archivo.
+     * @throws IOException Si no se puede leer el archivo o escribir los
+     *                     rechazos.
+     */
+    private void leerLineas(BufferedReader lector) throws IOException {
+        List<Fila> lote = new ArrayList<>(tamanoLote);
+        String linea;
+        long numeroLinea = 0;
+
+        while ((linea = lector.readLine()) != null && errorEscritura == null) {
+            numeroLinea++;
+            if (linea.isBlank() || (numeroLinea == 1 && linea.toLowerCase().startsWith("nombre"))) {
+                continue;
+            }
+            leidas++;
+
+            if (linea.indexOf(CARACTER_INVALIDO) >= 0) {
+                rechazar(numeroLinea, "Codificación no válida (se esperaba UTF-8).", linea);
+                continue;
+            }
+            try {
+                lote.add(new Fila(numeroLinea, linea, leerProducto(linea)));
+            } catch (DatoInvalidoException e) {
+                rechazar(numeroLinea, e.getMessage(), linea);
+            }
+
+            if (lote.size() == tamanoLote) {
+                encolar(lote);
+                lote = new ArrayList<>(tamanoLote);
+            }
+        }
+
+        if (!lote.isEmpty()) {
+            encolar(lote);
+        }
+    }
+
+    /**
+     * Obtiene el número de líneas de datos leídas.
+     *
+     * @return Líneas leídas.
+     */
+    public long getLeidas() {
+        return leidas;
+    }
+
+    /**
+     * Obtiene el número de productos insertados.
+     *
+     * @return Productos insertados.
+     */
+    public long getInsertados() {
+        return insertados;
+    }
+
+    /**
+     * Obtiene el número de filas rechazadas.
+     *
+     * @return Filas rechazadas.
+     */
+    public synchronized long getRechazadas() {
+        return rechazadas;
+    }
+
+    /**
+     * Obtiene la ruta del archivo de rechazos.
+     *
+     * @return Ruta del archivo de rechazos.
+     */
+    public Path getArchivoRechazos() {
+        return archivoRechazos;
+    }
+
+    /**
+     * Convierte una línea del CSV en un producto, con las validaciones de
+     * {@link Producto}.
+     *
+     * @param linea Línea del CSV.
+     * @return El producto.
+     * @throws DatoInvalidoException Si la línea no tiene el formato esperado o
+     *                               algún dato es inválido.
+     */
+    private static Producto leerProducto(String linea) throws DatoInvalidoException {
+        List<String> campos = separarCampos(linea);
+        if (campos.size() != 4) {
+            throw new DatoInvalidoException("Se esperaban 4 campos y hay " + campos.size() + ".");
+        }
+
+        double precio;
+        int stock;
+        try {
+            precio = Double.parseDouble(campos.get(2).trim());
+            stock = Integer.parseInt(campos.get(3).trim());
+        } catch (NumberFormatException e) {
+            throw new DatoInvalidoException("Precio o stock no numérico.");
+        }
+
+        return new Producto(campos.get(0).trim(), campos.get(1).trim(), precio, stock);
+    }
+
+    /**
+     * Separa una línea CSV en campos, respetando las comillas dobles.
+     *
+     * @param linea Línea del CSV.
+     * @return Los campos.
+     */
+    private static List<String> separarCampos(String linea) {
+        List<String> campos = new ArrayList<>(4);
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    /**
+     * Escribe una fila en el archivo de rechazos. Lo usan el hilo lector y el
+     * escritor.
+     *
+     * @param numeroLinea Número de línea en el archivo.
+     * @param motivo      Motivo del rechazo.
+     * @param linea       Contenido de la línea.
+     * @throws IOException Si no se puede escribir el archivo de rechazos.
+     */
+    private synchronized void rechazar(long numeroLinea, String motivo, String linea) throws IOException {
+        rechazadas++;
+        rechazos.write(numeroLinea + "," + campoCsv(motivo) + "," + campoCsv(linea) + "\n");
+    }
+
+    /**
+     * Escribe un valor como campo CSV entre comillas.
+     *
+     * @param valor Valor del campo.
+     * @return El campo entrecomillado.
+     */
+    private static String campoCsv(String valor) {
+        return "\"" + valor.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Deja un lote en la cola, esperando si el hilo escritor va retrasado. Si el
+     * escritor ha fallado el lote se descarta, y si ya ha terminado no se
+     * espera.
+     *
+     * @param lote Lote a encolar.
+     */
+    private void encolar(List<Fila> lote) {
+        try {
+            while (!cola.offer(lote, 100, TimeUnit.MILLISECONDS)) {
+                if (escritorTerminado || (errorEscritura != null && lote != FIN)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Bucle del hilo escritor: inserta los lotes hasta recibir el lote final.
+     * Si un lote falla se inserta fila a fila y las filas que rechaza la base
+     * de datos van al archivo de rechazos; solo un error de conexión, de
+     * escritura de los rechazos o inesperado detiene la carga.
+     */
+    private void escribirLotes() {
+        try {
+            List<Fila> lote;
+            while ((lote = cola.take()) != FIN) {
+                if (errorEscritura == null) {
+                    escribirLote(lote);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException | IOException | RuntimeException e) {
+            errorEscritura = e;
+        } finally {
+            escritorTerminado = true;
+        }
+    }
+
+    /**
+     * Inserta un lote; si la base de datos lo rechaza, lo inserta fila a fila.
+     *
+     * @param lote Las filas del lote.
+     * @throws SQLException Si se pierde la conexión con la base de datos.
+     * @throws IOException  Si no se puede escribir el archivo de rechazos.
+     */
+    private void escribirLote(List<Fila> lote) throws SQLException, IOException {
+        List<Producto> productos = new ArrayList<>(lote.size());
+        for (Fila fila : lote) {
+            productos.add(fila.producto);
+        }
+
+        try {
+            insertados += ProductosBBDD.insertarProductos(productos).size();
+            return;
+        } catch (SQLException e) {
+            if (esErrorConexion(e)) {
+                throw e;
+            }
+        }
+
+        // El lote se ha deshecho entero: se repite fila a fila para aislar las que fallan
+        for (Fila fila : lote) {
+            try {
+                if (ProductosBBDD.insertarProducto(fila.producto)) {
+                    insertados++;
+                }
+            } catch (SQLException e) {
+                if (esErrorConexion(e)) {
+                    throw e;
+                }
+                rechazar(fila.numeroLinea, "Rechazada por la base de datos: " + e.getMessage(), fila.linea);
+            }
+        }
+    }
+
+    /**
+     * Indica si un error se debe a la conexión (clase SQLSTATE 08) y no a los
+     * datos de una fila.
+     *
+     * @param e El error.
+     * @return true si es un error de conexión.
+     */
+    private static boolean esErrorConexion(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+
+    /**
+     * Línea válida del CSV pendiente de insertar.
+     */
+    private static class Fila {
+
+        /**
+         * Número de línea en el archivo.
+         */
+        final long numeroLinea;
+
+        /**
+         * Contenido de la línea, para el archivo de rechazos.
+         */
+        final String linea;
+
+        /**
+         * Producto leído de la línea.
+         */
+        final Producto producto;
+
+        /**
+         * Constructor.
+         *
+         * @param numeroLinea Número de línea en el archivo.
+         * @param linea       Contenido de la línea.
+         * @param producto    Producto leído de la línea.
+         */
+        Fila(long numeroLinea, String linea, Producto producto) {
+            this.numeroLinea = numeroLinea;
+            this.linea = linea;
+            this.producto = producto;
+        }
+    }
+}
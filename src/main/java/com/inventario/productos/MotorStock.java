@@ -0,0 +1,340 @@
+package com.inventario.productos;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.inventario.bbdd.ConexionBBDD;
+import com.inventario.bbdd.ReintentoBBDD;
+import com.inventario.metricas.Metricas;
+import com.inventario.metricas.Operacion;
+
+/**
+ * Descuenta stock de forma atómica, sin leer el stock y escribirlo después.
+ * <p>
+ * El modo por defecto ({@code stock.modo=condicional}) usa un único
+ * {@code UPDATE ... WHERE stock >= ?} y decide por el número de filas
+ * afectadas. El modo {@code optimista} lee el stock y lo sustituye solo si no
+ * ha cambiado. Si otra venta se ha adelantado no se reintenta dentro de la
+ * misma transacción, porque con REPEATABLE READ (el nivel por defecto de
+ * InnoDB) la lectura devolvería la misma instantánea: se lanza un error con
+ * SQLSTATE 40001 para que {@link ReintentoBBDD} repita la transacción entera,
+ * hasta {@code db.reintentos.maximo} veces.
+ * <p>
+ * Los métodos trabajan dentro de la transacción del llamador y no tocan la
+ * caché de {@link ProductosBBDD}: si descartaran un producto antes de
+ * confirmar, otra lectura podría volver a cachear el stock anterior. Es el
+ * llamador quien descarta los productos modificados después de
+ * {@code commit()}, como hace {@code ServicioVentas}.
+ */
+public class MotorStock {
+
+    /** El stock se ha descontado. */
+    public static final int DESCONTADO = 1;
+
+    /** No hay stock suficiente; no se ha modificado nada. */
+    public static final int STOCK_INSUFICIENTE = -1;
+
+    /** El producto no existe. */
+    public static final int NO_ENCONTRADO = -2;
+
+    /** Métricas de descontar en modo condicional. */
+    private static final Operacion OP_CONDICIONAL = Metricas.operacion("MotorStock.descontarCondicional");
+
+    /** Métricas de descontar en modo optimista. */
+    private static final Operacion OP_OPTIMISTA = Metricas.operacion("MotorStock.descontarOptimista");
+
+    /** Descuentos optimistas que han fallado porque el stock había cambiado. */
+    private static final Operacion OP_CONFLICTOS = Metricas.operacion("MotorStock.conflictoOptimista");
+
+    /** Métricas de descontarVarios en modo condicional. */
+    private static final Operacion OP_VARIOS = Metricas.operacion("MotorStock.descontarVarios");
+
+    /** Métricas de descontarVarios en modo optimista. */
+    private static final Operacion OP_VARIOS_OPTIMISTA =
+            Metricas.operacion("MotorStock.descontarVariosOptimista");
+
+    /** Métricas de reponerVarios. */
+    private static final Operacion OP_REPONER = Metricas.operacion("MotorStock.reponerVarios");
+
+    /** Métricas de leerStock. */
+    private static final Operacion OP_LEER = Metricas.operacion("MotorStock.leerStock");
+
+    /**
+     * Descuenta stock con un único UPDATE condicional. Solo si no se modifica
+     * ninguna fila se consulta el stock para saber el motivo.
+     *
+     * @param con        La conexión a la base de datos.
+     * @param idProducto El ID del producto.
+     * @param cantidad   Unidades a descontar.
+     * @return {@link #DESCONTADO}, {@link #STOCK_INSUFICIENTE} o
+     *         {@link #NO_ENCONTRADO}.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static int descontarCondicional(Connection con, int idProducto, int cantidad) throws SQLException {
+        long inicio = Metricas.iniciar();
+        String sql = "UPDATE producto SET stock = stock - ? WHERE id_producto = ? AND stock >= ?";
+        int filas;
+
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, cantidad);
+            ps.setInt(2, idProducto);
+            ps.setInt(3, cantidad);
+            filas = ps.executeUpdate();
+        }
+        OP_CONDICIONAL.registrar(inicio, sql, 3, filas);
+
+        if (filas == 1) {
+            return DESCONTADO;
+        }
+        return leerStock(con, List.of(idProducto)).containsKey(idProducto) ? STOCK_INSUFICIENTE
+                : NO_ENCONTRADO;
+    }
+
+    /**
+     * Descuenta stock de forma optimista: lee el stock sin bloquear y lo
+     * sustituye solo si sigue siendo el mismo.
+     * <p>
+     * Si otra venta lo ha cambiado entre medias se lanza un error con SQLSTATE
+     * 40001: la transacción se debe deshacer y repetir entera (por ejemplo con
+     * {@link ReintentoBBDD#ejecutar(ReintentoBBDD.TareaBBDD)}), ya que dentro
+     * de la misma transacción la lectura volvería a ver el stock anterior.
+     *
+     * @param con        La conexión a la base de datos.
+     * @param idProducto El ID del producto.
+     * @param cantidad   Unidades a descontar.
+     * @return {@link #DESCONTADO}, {@link #STOCK_INSUFICIENTE} o
+     *         {@link #NO_ENCONTRADO}.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos
+     *                      o el stock ha cambiado (SQLSTATE 40001).
+     */
+    public static int descontarOptimista(Connection con, int idProducto, int cantidad) throws SQLException {
+        long inicio = Metricas.iniciar();
+        String sql = "UPDATE producto SET stock = ? WHERE id_producto = ? AND stock = ?";
+
+        Integer stock = leerStock(con, List.of(idProducto)).get(idProducto);
+        if (stock == null) {
+            OP_OPTIMISTA.registrar(inicio, 0);
+            return NO_ENCONTRADO;
+        }
+        if (stock < cantidad) {
+            OP_OPTIMISTA.registrar(inicio, 0);
+            return STOCK_INSUFICIENTE;
+        }
+
+        int filas;
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, stock - cantidad);
+            ps.setInt(2, idProducto);
+            ps.setInt(3, stock);
+            filas = ps.executeUpdate();
+        }
+        OP_OPTIMISTA.registrar(inicio, sql, 3, filas);
+
+        if (filas != 1) {
+            throw conflicto(inicio, idProducto);
+        }
+        return DESCONTADO;
+    }
+
+    /**
+     * Descuenta el stock de varios productos con el modo configurado en
+     * {@code stock.modo}. Los productos se recorren en orden ascendente de ID,
+     * así que dos ventas con productos en común los bloquean en el mismo orden
+     * y no se interbloquean entre sí.
+     * El descuento es todo o nada solo dentro de una transacción: si devuelve
+     * false o lanza un error, el llamador debe deshacer los productos que sí se
+     * hayan descontado.
+     *
+     * @param con        La conexión con la transacción de la venta.
+     * @param cantidades Unidades a descontar por producto, en orden de ID.
+     * @return true si se ha descontado el stock de todos los productos (también
+     *         si no hay ninguno); false si a alguno le falta stock o no existe.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos
+     *                      o, en modo optimista, el stock ha cambiado (SQLSTATE
+     *                      40001: se debe repetir la transacción).
+     */
+    public static boolean descontarVarios(Connection con, Map<Integer, Integer> cantidades) throws SQLException {
+        if (cantidades.isEmpty()) {
+            return true;
+        }
+        if ("optimista".equalsIgnoreCase(ConexionBBDD.getPropiedad("stock.modo", "condicional"))) {
+            return descontarVariosOptimista(con, cantidades);
+        }
+        return descontarVariosCondicional(con, cantidades);
+    }
+
+    /**
+     * Descuenta el stock de varios productos de forma optimista: lee el stock
+     * de todos y sustituye cada uno solo si no ha cambiado.
+     *
+     * @param con        La conexión con la transacción de la venta.
+     * @param cantidades Unidades a descontar por producto, en orden de ID.
+     * @return true si se ha descontado el stock de todos los productos; false,
+     *         sin modificar nada, si a alguno le falta stock o no existe.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos
+     *                      o el stock de algún producto ha cambiado (SQLSTATE
+     *                      40001).
+     */
+    private static boolean descontarVariosOptimista(Connection con, Map<Integer, Integer> cantidades)
+            throws SQLException {
+        long inicio = Metricas.iniciar();
+        String sql = "UPDATE producto SET stock = ? WHERE id_producto = ? AND stock = ?";
+
+        Map<Integer, Integer> stock = leerStock(con, cantidades.keySet());
+        for (Map.Entry<Integer, Integer> cantidad : cantidades.entrySet()) {
+            Integer actual = stock.get(cantidad.getKey());
+            if (actual == null || actual < cantidad.getValue()) {
+                OP_VARIOS_OPTIMISTA.registrar(inicio, 0);
+                return false;
+            }
+        }
+
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (Map.Entry<Integer, Integer> cantidad : cantidades.entrySet()) {
+                int actual = stock.get(cantidad.getKey());
+                ps.setInt(1, actual - cantidad.getValue());
+                ps.setInt(2, cantidad.getKey());
+                ps.setInt(3, actual);
+                if (ps.executeUpdate() != 1) {
+                    throw conflicto(inicio, cantidad.getKey());
+                }
+            }
+        }
+        OP_VARIOS_OPTIMISTA.registrar(inicio, sql, 3 * cantidades.size(), cantidades.size());
+        return true;
+    }
+
+    /**
+     * Registra un conflicto optimista y crea el error que hace repetir la
+     * transacción.
+     *
+     * @param inicio     Inicio del descuento.
+     * @param idProducto El producto cuyo stock ha cambiado.
+     * @return Un error con SQLSTATE 40001, que {@link ReintentoBBDD} reintenta.
+     */
+    private static SQLException conflicto(long inicio, int idProducto) {
+        OP_CONFLICTOS.registrar(inicio, 0);
+        return new SQLException("El stock del producto ID " + idProducto
+                + " ha cambiado durante la venta: se repite la transacción.", "40001");
+    }
+
+    /**
+     * Descuenta el stock de varios productos con un único UPDATE condicional,
+     * que recorre los productos por la clave primaria en orden ascendente de
+     * ID.
+     *
+     * @param con        La conexión con la transacción de la venta.
+     * @param cantidades Unidades a descontar por producto.
+     * @return true si se ha descontado el stock de todos los productos.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static boolean descontarVariosCondicional(Connection con, Map<Integer, Integer> cantidades)
+            throws SQLException {
+        long inicio = Metricas.iniciar();
+        int n = cantidades.size();
+        String caso = "CASE id_producto " + "WHEN ? THEN ? ".repeat(n) + "END";
+        String sql = "UPDATE producto SET stock = stock - " + caso
+                + " WHERE id_producto IN (" + "?, ".repeat(n - 1) + "?) AND stock >= " + caso;
+        int filas;
+
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            int i = asignarCaso(ps, 1, cantidades);
+            for (Integer idProducto : cantidades.keySet()) {
+                ps.setInt(i++, idProducto);
+            }
+            asignarCaso(ps, i, cantidades);
+            filas = ps.executeUpdate();
+        }
+        OP_VARIOS.registrar(inicio, sql, 5 * n, filas);
+        return filas == n;
+    }
+
+    /**
+     * Devuelve stock a varios productos con un único UPDATE, por ejemplo al
+     * anular una venta. Los productos que ya no existen se ignoran.
+     *
+     * @param con        La conexión con la transacción de la anulación.
+     * @param cantidades Unidades a devolver por producto.
+     * @return Número de productos actualizados (0 si no hay ninguno).
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static int reponerVarios(Connection con, Map<Integer, Integer> cantidades) throws SQLException {
+        if (cantidades.isEmpty()) {
+            return 0;
+        }
+        long inicio = Metricas.iniciar();
+        int n = cantidades.size();
+        String sql = "UPDATE producto SET stock = stock + CASE id_producto " + "WHEN ? THEN ? ".repeat(n)
+                + "END WHERE id_producto IN (" + "?, ".repeat(n - 1) + "?)";
+        int filas;
+
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            int i = asignarCaso(ps, 1, cantidades);
+            for (Integer idProducto : cantidades.keySet()) {
+                ps.setInt(i++, idProducto);
+            }
+            filas = ps.executeUpdate();
+        }
+        OP_REPONER.registrar(inicio, sql, 3 * n, filas);
+        return filas;
+    }
+
+    /**
+     * Lee el stock actual de varios productos.
+     *
+     * @param con         La conexión a la base de datos.
+     * @param idProductos Los IDs de los productos.
+     * @return El stock de cada producto existente (vacío si no se pide ninguno).
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static Map<Integer, Integer> leerStock(Connection con, Collection<Integer> idProductos)
+            throws SQLException {
+        if (idProductos.isEmpty()) {
+            return new HashMap<>();
+        }
+        long inicio = Metricas.iniciar();
+        String sql = "SELECT id_producto, stock FROM producto WHERE id_producto IN ("
+                + "?, ".repeat(idProductos.size() - 1) + "?)";
+        Map<Integer, Integer> stock = new HashMap<>(idProductos.size() * 2);
+
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            int i = 1;
+            for (Integer idProducto : idProductos) {
+                ps.setInt(i++, idProducto);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    stock.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+        }
+
+        OP_LEER.registrar(inicio, sql, idProductos.size(), stock.size());
+        return stock;
+    }
+
+    /**
+     * Asigna los parámetros de un {@code CASE id_producto WHEN ? THEN ? ...}.
+     *
+     * @param ps         La sentencia.
+     * @param desde      Índice del primer parámetro.
+     * @param cantidades Unidades por producto.
+     * @return Índice del siguiente parámetro libre.
+     * @throws SQLException Si ocurre un error al asignar los parámetros.
+     */
+    private static int asignarCaso(PreparedStatement ps, int desde, Map<Integer, Integer> cantidades)
+            throws SQLException {
+        int i = desde;
+        for (Map.Entry<Integer, Integer> cantidad : cantidades.entrySet()) {
+            ps.setInt(i++, cantidad.getKey());
+            ps.setInt(i++, cantidad.getValue());
+        }
+        return i;
+    }
+}
@@ -6,11 +6,22 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import com.inventario.bbdd.ConexionBBDD;
 import com.inventario.bbdd.GestionBBDD;
+import com.inventario.bbdd.Pagina;
 import com.inventario.excepciones.DatoInvalidoException;
+import com.inventario.metricas.Metricas;
+import com.inventario.metricas.Operacion;
+import com.inventario.util.CacheLRU;
+import com.inventario.util.IndiceNGramas;
+import com.inventario.util.IndicePrefijos;
 
 /**
  * Clase que gestiona las operaciones de la base de datos relacionadas con los
@@ -18,6 +29,289 @@ import com.inventario.excepciones.DatoInvalidoException;
  */
 public class ProductosBBDD {
 
+    /** Métricas de contarProductos. */
+    private static final Operacion OP_CONTAR = Metricas.operacion("ProductosBBDD.contarProductos");
+
+    /** Métricas de buscarPorCampo. */
+    private static final Operacion OP_BUSCAR = Metricas.operacion("ProductosBBDD.buscarPorCampo");
+
+    /** Métricas de actualizarProductoCampo. */
+    private static final Operacion OP_ACTUALIZAR = Metricas.operacion("ProductosBBDD.actualizarProductoCampo");
+
+    /** Métricas de eliminarProducto. */
+    private static final Operacion OP_ELIMINAR = Metricas.operacion("ProductosBBDD.eliminarProducto");
+
+    /** Métricas de cada consulta de buscarPorIds. */
+    private static final Operacion OP_BUSCAR_IDS = Metricas.operacion("ProductosBBDD.buscarPorIds");
+
+    /** Métricas de obtenerProductos. */
+    private static final Operacion OP_OBTENER = Metricas.operacion("ProductosBBDD.obtenerProductos");
+
+    /** Métricas de obtenerPagina. */
+    private static final Operacion OP_PAGINA = Metricas.operacion("ProductosBBDD.obtenerPagina");
+
+    /** Métricas de buscarPorNombre. */
+    private static final Operacion OP_BUSCAR_NOMBRE = Metricas.operacion("ProductosBBDD.buscarPorNombre");
+
+    /** Métricas de buscarPorTexto. */
+    private static final Operacion OP_BUSCAR_TEXTO = Metricas.operacion("ProductosBBDD.buscarPorTexto");
+
+    /** Métricas de cargarIndices. */
+    private static final Operacion OP_CARGAR_INDICE = Metricas.operacion("ProductosBBDD.cargarIndices");
+
+    /** Métricas de insertarProducto. */
+    private static final Operacion OP_INSERTAR = Metricas.operacion("ProductosBBDD.insertarProducto");
+
+    /** Métricas de cada lote de insertarProductos. */
+    private static final Operacion OP_INSERTAR_LOTE = Metricas.operacion("ProductosBBDD.insertarProductos");
+
+    /**
+     * Caché de productos por ID. Se invalida en cada escritura que pasa por esta
+     * clase y en el descuento de stock de las ventas; el tiempo de vida limita lo
+     * que puede durar un dato modificado desde fuera de la aplicación.
+     */
+    private static final CacheLRU<Integer, Producto> CACHE = new CacheLRU<>(
+            ConexionBBDD.getPropiedadEntera("cache.productos.maximo", 10000),
+            ConexionBBDD.getPropiedadEntera("cache.productos.ttlSegundos", 60));
+
+    /**
+     * Índice de prefijos sobre el nombre de los productos, cargado con
+     * {@link #cargarIndices()} y mantenido en cada alta, baja y cambio de
+     * nombre.
+     */
+    private static final IndicePrefijos INDICE_NOMBRES = new IndicePrefijos();
+
+    /**
+     * Índice de n-gramas sobre el nombre y la descripción de los productos,
+     * cargado y mantenido junto con el índice de nombres.
+     */
+    private static final IndiceNGramas INDICE_TEXTO = new IndiceNGramas(
+            ConexionBBDD.getPropiedadEntera("busqueda.ngramas.n", 3),
+            ConexionBBDD.getPropiedadEntera("busqueda.ngramas.porcentaje", 50));
+
+    static {
+        Metricas.registrarComponente("Caché de productos", "type=Cache,name=productos", CACHE);
+    }
+
+    /**
+     * Carga el índice de nombres y el de n-gramas con todos los productos,
+     * leídos por bloques en una sola consulta. El índice de n-gramas se
+     * construye en paralelo. Hasta que se cargan,
+     * {@link #buscarPorNombre(String, int)} y {@link #buscarPorTexto(String, int)}
+     * consultan la base de datos.
+     *
+     * @return El número de productos indexados.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static int cargarIndices() throws SQLException {
+        long inicio = Metricas.iniciar();
+        String sql = "SELECT id_producto, nombre, descripcion FROM producto ORDER BY id_producto";
+        int[] ids = new int[1024];
+        List<String> textos = new ArrayList<>();
+
+        INDICE_NOMBRES.vaciar();
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(GestionBBDD.tamanoLectura());
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt(1);
+                    String nombre = rs.getString(2);
+                    if (textos.size() == ids.length) {
+                        ids = Arrays.copyOf(ids, ids.length * 2);
+                    }
+                    ids[textos.size()] = id;
+                    textos.add(textoIndexado(nombre, rs.getString(3)));
+                    INDICE_NOMBRES.indexar(id, nombre);
+                }
+            }
+        }
+        INDICE_NOMBRES.marcarCargado();
+        INDICE_TEXTO.cargar(Arrays.copyOf(ids, textos.size()), textos.toArray(new String[0]));
+
+        OP_CARGAR_INDICE.registrar(inicio, sql, 0, textos.size());
+        return textos.size();
+    }
+
+    /**
+     * Busca productos por cualquier parte de su nombre o su descripción, con
+     * el índice de n-gramas: encuentra palabras a medias ("molid") y con
+     * pequeñas erratas ("cafetrea").
+     *
+     * @param texto  El texto buscado.
+     * @param maximo Número máximo de productos.
+     * @return Los productos encontrados, del más al menos parecido.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static List<Producto> buscarPorTexto(String texto, int maximo) throws SQLException {
+        if (!INDICE_TEXTO.estaCargado()) {
+            // Registra la misma operación, con su sentencia SQL
+            return buscarPorTextoEnBBDD(texto, maximo);
+        }
+        long inicio = Metricas.iniciar();
+
+        List<Integer> ids = INDICE_TEXTO.buscar(texto, maximo);
+        List<Producto> productos = enOrden(ids, buscarPorIds(ids));
+        OP_BUSCAR_TEXTO.registrar(inicio, productos.size());
+        return productos;
+    }
+
+    /**
+     * Busca productos cuyo nombre o descripción contiene un texto, consultando
+     * la base de datos. Se usa mientras el índice de n-gramas no está cargado.
+     *
+     * @param texto  El texto buscado.
+     * @param maximo Número máximo de productos.
+     * @return Los productos encontrados, por nombre.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static List<Producto> buscarPorTextoEnBBDD(String texto, int maximo) throws SQLException {
+        long inicio = Metricas.iniciar();
+        String sql = "SELECT id_producto, nombre, descripcion, precio, stock FROM producto "
+                + "WHERE nombre LIKE ? OR descripcion LIKE ? ORDER BY nombre LIMIT ?";
+        String patron = "%" + texto.trim() + "%";
+        List<Producto> productos = new ArrayList<>();
+
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, patron);
+            ps.setString(2, patron);
+            ps.setInt(3, maximo);
+            leerProductos(ps, productos);
+        }
+        OP_BUSCAR_TEXTO.registrar(inicio, sql, 3, productos.size());
+        return productos;
+    }
+
+    /**
+     * Ejecuta una consulta de productos y añade los válidos a una lista; los
+     * inválidos se informan y se omiten.
+     *
+     * @param ps        La consulta, con los parámetros asignados.
+     * @param productos La lista donde se añaden.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static void leerProductos(PreparedStatement ps, List<Producto> productos) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                try {
+                    productos.add(new Producto(
+                            rs.getInt("id_producto"),
+                            rs.getString("nombre"),
+                            rs.getString("descripcion"),
+                            rs.getDouble("precio"),
+                            rs.getInt("stock")));
+                } catch (DatoInvalidoException e) {
+                    System.err.println("ERROR de datos en el Producto ID " + rs.getInt("id_producto") + ": "
+                            + e.getMessage() + ". Este id ha sido OMITIDO de la lista.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Ordena los productos encontrados como sus IDs.
+     *
+     * @param ids    Los IDs en el orden deseado.
+     * @param porId  Los productos por ID.
+     * @return Los productos existentes, en el orden de los IDs.
+     */
+    private static List<Producto> enOrden(List<Integer> ids, Map<Integer, Producto> porId) {
+        List<Producto> productos = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Producto producto = porId.get(id);
+            if (producto != null) {
+                productos.add(producto);
+            }
+        }
+        return productos;
+    }
+
+    /**
+     * Texto de un producto en el índice de n-gramas.
+     *
+     * @param nombre      El nombre.
+     * @param descripcion La descripción (puede ser null).
+     * @return El nombre y la descripción.
+     */
+    private static String textoIndexado(String nombre, String descripcion) {
+        return descripcion == null ? nombre : nombre + " " + descripcion;
+    }
+
+    /**
+     * Vuelve a indexar el nombre y la descripción de un producto tras
+     * modificarlos.
+     *
+     * @param con        La conexión a la base de datos.
+     * @param idProducto El ID del producto.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static void reindexar(Connection con, int idProducto) throws SQLException {
+        String sql = "SELECT nombre, descripcion FROM producto WHERE id_producto = ?";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, idProducto);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    INDICE_NOMBRES.indexar(idProducto, rs.getString(1));
+                    INDICE_TEXTO.indexar(idProducto, textoIndexado(rs.getString(1), rs.getString(2)));
+                } else {
+                    INDICE_NOMBRES.quitar(idProducto);
+                    INDICE_TEXTO.quitar(idProducto);
+                }
+            }
+        }
+    }
+
+    /**
+     * Busca productos por el principio de las palabras de su nombre (por
+     * ejemplo, "caf mol" encuentra "Café molido") con el índice de nombres, y
+     * los lee de la caché.
+     *
+     * @param texto  El texto buscado.
+     * @param maximo Número máximo de productos.
+     * @return Los productos encontrados, los de coincidencia exacta primero.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static List<Producto> buscarPorNombre(String texto, int maximo) throws SQLException {
+        if (!INDICE_NOMBRES.estaCargado()) {
+            // Registra la misma operación, con su sentencia SQL
+            return buscarPorNombreEnBBDD(texto, maximo);
+        }
+        long inicio = Metricas.iniciar();
+
+        List<Integer> ids = INDICE_NOMBRES.buscar(texto, maximo);
+        List<Producto> productos = enOrden(ids, buscarPorIds(ids));
+        OP_BUSCAR_NOMBRE.registrar(inicio, productos.size());
+        return productos;
+    }
+
+    /**
+     * Busca productos cuyo nombre contiene un texto, consultando la base de
+     * datos. Se usa mientras el índice de nombres no está cargado.
+     *
+     * @param texto  El texto buscado.
+     * @param maximo Número máximo de productos.
+     * @return Los productos encontrados, por nombre.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static List<Producto> buscarPorNombreEnBBDD(String texto, int maximo) throws SQLException {
+        long inicio = Metricas.iniciar();
+        String sql = "SELECT id_producto, nombre, descripcion, precio, stock FROM producto "
+                + "WHERE nombre LIKE ? ORDER BY nombre LIMIT ?";
+        List<Producto> productos = new ArrayList<>();
+
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, "%" + texto.trim() + "%");
+            ps.setInt(2, maximo);
+            leerProductos(ps, productos);
+        }
+        OP_BUSCAR_NOMBRE.registrar(inicio, sql, 2, productos.size());
+        return productos;
+    }
+
     /**
      * Cuenta el número total de productos en la base de datos.
      *
@@ -25,6 +319,7 @@ public class ProductosBBDD {
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      */
     public static int contarProductos() throws SQLException {
+        long inicio = Metricas.iniciar();
         String sql = "SELECT COUNT(*) FROM producto";
         int count = 0;
 
@@ -36,6 +331,7 @@ public class ProductosBBDD {
                 count = rs.getInt(1);
             }
         }
+        OP_CONTAR.registrar(inicio, sql, 0, 1);
         return count;
     }
 
@@ -50,6 +346,7 @@ public class ProductosBBDD {
      * @throws DatoInvalidoException Si el valor del campo es inválido.
      */
     public static List<Producto> buscarPorCampo(String campo, Object valor) throws SQLException, DatoInvalidoException {
+        long inicio = Metricas.iniciar();
         String sql = "SELECT id_producto, nombre, descripcion, precio, stock "
                 + "FROM producto WHERE " + campo + " = ?";
 
@@ -73,9 +370,91 @@ public class ProductosBBDD {
             }
         }
 
+        OP_BUSCAR.registrar(inicio, sql, 1, productos.size());
+        return productos;
+    }
+
+    /**
+     * Busca un producto por su ID, consultando primero la caché.
+     * <p>
+     * El producto devuelto puede estar compartido con otras llamadas, así que no
+     * se debe modificar.
+     *
+     * @param idProducto El ID del producto.
+     * @return El producto, o null si no existe.
+     * @throws SQLException          Si ocurre un error al interactuar con la base
+     *                               de datos.
+     * @throws DatoInvalidoException Si los datos guardados del producto son
+     *                               inválidos.
+     */
+    public static Producto buscarPorId(int idProducto) throws SQLException, DatoInvalidoException {
+        Producto producto = CACHE.obtener(idProducto);
+        if (producto == null) {
+            List<Producto> resultados = buscarPorCampo("id_producto", idProducto);
+            if (!resultados.isEmpty()) {
+                producto = resultados.get(0);
+                CACHE.guardar(idProducto, producto);
+            }
+        }
+        return producto;
+    }
+
+    /**
+     * Busca varios productos por su ID. Los que están en la caché no se
+     * consultan; el resto se cargan con {@link GestionBBDD#cargarPorIds} y se
+     * guardan en la caché.
+     *
+     * @param ids Los IDs de los productos.
+     * @return Los productos encontrados por ID. Los IDs que no existen no
+     *         aparecen.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static Map<Integer, Producto> buscarPorIds(Collection<Integer> ids) throws SQLException {
+        Map<Integer, Producto> productos = new HashMap<>(ids.size() * 2);
+        List<Integer> pendientes = new ArrayList<>();
+
+        for (Integer id : ids) {
+            Producto producto = CACHE.obtener(id);
+            if (producto != null) {
+                productos.put(id, producto);
+            } else {
+                pendientes.add(id);
+            }
+        }
+
+        if (!pendientes.isEmpty()) {
+            Map<Integer, Producto> cargados = GestionBBDD.cargarPorIds(
+                    "SELECT id_producto, nombre, descripcion, precio, stock FROM producto", "id_producto",
+                    pendientes,
+                    rs -> new Producto(
+                            rs.getInt("id_producto"),
+                            rs.getString("nombre"),
+                            rs.getString("descripcion"),
+                            rs.getDouble("precio"),
+                            rs.getInt("stock")),
+                    OP_BUSCAR_IDS);
+
+            for (Producto producto : cargados.values()) {
+                CACHE.guardar(producto.getId(), producto);
+            }
+            productos.putAll(cargados);
+        }
+
         return productos;
     }
 
+    /**
+     * Descarta un producto de la caché. Se llama cuando el producto se modifica
+     * fuera de esta clase, como al descontar stock en una venta, y siempre
+     * después de confirmar la transacción: antes, otra lectura podría volver a
+     * cachear el stock anterior.
+     *
+     * @param idProducto El ID del producto.
+     */
+    public static void invalidarCache(int idProducto) {
+        CACHE.invalidar(idProducto);
+    }
+
     /**
      * Actualiza un campo específico de un producto en la base de datos.
      *
@@ -86,6 +465,7 @@ public class ProductosBBDD {
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      */
     public static boolean actualizarProductoCampo(int idProducto, String campo, Object valor) throws SQLException {
+        long inicio = Metricas.iniciar();
         String sql = "UPDATE producto SET " + campo + " = ? WHERE id_producto = ?";
 
         try (Connection con = ConexionBBDD.obtenerConexion();
@@ -95,6 +475,11 @@ public class ProductosBBDD {
             ps.setInt(2, idProducto);
 
             int filasAfectadas = ps.executeUpdate();
+            CACHE.invalidar(idProducto);
+            if (filasAfectadas > 0 && ("nombre".equalsIgnoreCase(campo) || "descripcion".equalsIgnoreCase(campo))) {
+                reindexar(con, idProducto);
+            }
+            OP_ACTUALIZAR.registrar(inicio, sql, 2, filasAfectadas);
             if (filasAfectadas > 0) {
                 System.out.println("Producto actualizado correctamente.");
             } else {
@@ -113,6 +498,7 @@ public class ProductosBBDD {
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      */
     public static boolean eliminarProducto(int idProducto) throws SQLException {
+        long inicio = Metricas.iniciar();
         String sql = "DELETE FROM producto WHERE id_producto = ?";
 
         try (Connection con = ConexionBBDD.obtenerConexion();
@@ -120,6 +506,10 @@ public class ProductosBBDD {
 
             ps.setInt(1, idProducto);
             int filasAfectadas = ps.executeUpdate();
+            CACHE.invalidar(idProducto);
+            INDICE_NOMBRES.quitar(idProducto);
+            INDICE_TEXTO.quitar(idProducto);
+            OP_ELIMINAR.registrar(inicio, sql, 1, filasAfectadas);
 
             System.out.println("Filas afectadas: " + filasAfectadas);
 
@@ -134,6 +524,7 @@ public class ProductosBBDD {
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      */
     public static List<Producto> obtenerProductos() throws SQLException {
+        long inicio = Metricas.iniciar();
         List<Producto> productos = new ArrayList<>();
         String sql = "SELECT id_producto, nombre, descripcion, precio, stock FROM producto";
 
@@ -160,11 +551,41 @@ public class ProductosBBDD {
             }
         }
 
+        OP_OBTENER.registrar(inicio, sql, 0, productos.size());
         return productos;
     }
 
     /**
-     * Inserta un nuevo producto en la base de datos.
+     * Obtiene una página de productos ordenados por ID, paginando por clave
+     * primaria.
+     *
+     * @param referencia    ID de referencia ({@link Pagina#INICIO} para la
+     *                      primera página).
+     * @param haciaAdelante true para los productos con ID mayor que la
+     *                      referencia, false para los de ID menor.
+     * @param tamano        Número de productos por página.
+     * @return La página de productos.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static Pagina<Producto> obtenerPagina(int referencia, boolean haciaAdelante, int tamano)
+            throws SQLException {
+        String sql = "SELECT id_producto, nombre, descripcion, precio, stock FROM producto";
+
+        return GestionBBDD.cargarPagina(sql, "id_producto", false, referencia, haciaAdelante, tamano,
+                rs -> new Producto(
+                        rs.getInt("id_producto"),
+                        rs.getString("nombre"),
+                        rs.getString("descripcion"),
+                        rs.getDouble("precio"),
+                        rs.getInt("stock")),
+                OP_PAGINA);
+    }
+
+    /**
+     * Inserta un nuevo producto en la base de datos, le asigna el ID generado y
+     * lo añade a los índices de búsqueda. No se guarda en la caché: el objeto
+     * sigue siendo del llamador, que puede modificarlo; se carga en la caché al
+     * leerlo con {@link #buscarPorId(int)}.
      *
      * @param producto El objeto Producto a insertar.
      * @return {@code true} si el producto fue insertado exitosamente, {@code false}
@@ -173,11 +594,12 @@ public class ProductosBBDD {
      */
 
     public static boolean insertarProducto(Producto producto) throws SQLException {
+        long inicio = Metricas.iniciar();
         boolean exito = false;
         String sql = "INSERT INTO producto (nombre, descripcion, precio, stock) VALUES (?, ?, ?, ?)";
 
         try (Connection con = ConexionBBDD.obtenerConexion();
-                PreparedStatement ps = con.prepareStatement(sql)) {
+                PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setString(1, producto.getNombre());
             ps.setString(2, producto.getDescripcion());
@@ -185,10 +607,116 @@ public class ProductosBBDD {
             ps.setInt(4, producto.getStock());
 
             exito = ps.executeUpdate() > 0;
+
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) {
+                    producto.setId(rs.getInt(1));
+                    INDICE_NOMBRES.indexar(producto.getId(), producto.getNombre());
+                    INDICE_TEXTO.indexar(producto.getId(),
+                            textoIndexado(producto.getNombre(), producto.getDescripcion()));
+                }
+            }
         }
+        OP_INSERTAR.registrar(inicio, sql, 4, exito ? 1 : 0);
         return exito;
     }
 
+    /**
+     * Inserta una lista de productos por lotes.
+     *
+     * @param productos Los productos a insertar.
+     * @return Los IDs generados, en el mismo orden que los productos.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     * @see #insertarProductos(Iterator)
+     */
+    public static List<Integer> insertarProductos(List<Producto> productos) throws SQLException {
+        return insertarProductos(productos.iterator());
+    }
+
+    /**
+     * Inserta productos por lotes de {@code db.lote.tamano} filas, confirmando
+     * cada lote por separado. Con {@code db.lote.reescribir} el driver envía cada
+     * lote como un único INSERT de varias filas.
+     * <p>
+     * A cada producto se le asigna el ID generado y se añade a los índices de
+     * búsqueda. No se guardan en la caché, para que una carga masiva no expulse
+     * los productos más consultados; se cachean al leerlos. Si falla un lote se deshace
+     * solo ese lote; los anteriores ya están confirmados.
+     *
+     * @param productos Iterador con los productos a insertar.
+     * @return Los IDs generados, en el mismo orden que los productos.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static List<Integer> insertarProductos(Iterator<Producto> productos) throws SQLException {
+        String sql = "INSERT INTO producto (nombre, descripcion, precio, stock) VALUES (?, ?, ?, ?)";
+        int tamanoLote = Math.max(1, ConexionBBDD.getPropiedadEntera("db.lote.tamano", 1000));
+        List<Integer> ids = new ArrayList<>();
+        List<Producto> lote = new ArrayList<>(tamanoLote);
+
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            con.setAutoCommit(false);
+            try {
+                while (productos.hasNext()) {
+                    Producto producto = productos.next();
+
+                    ps.setString(1, producto.getNombre());
+                    ps.setString(2, producto.getDescripcion());
+                    ps.setDouble(3, producto.getPrecio());
+                    ps.setInt(4, producto.getStock());
+                    ps.addBatch();
+                    lote.add(producto);
+
+                    if (lote.size() == tamanoLote) {
+                        ejecutarLote(con, ps, sql, lote, ids);
+                    }
+                }
+
+                if (!lote.isEmpty()) {
+                    ejecutarLote(con, ps, sql, lote, ids);
+                }
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * Ejecuta y confirma el lote pendiente y recoge los IDs generados.
+     *
+     * @param con  La conexión con la transacción del lote.
+     * @param ps   La sentencia con el lote acumulado.
+     * @param sql  El SQL de la sentencia.
+     * @param lote Los productos del lote; se vacía al terminar.
+     * @param ids  Lista donde se añaden los IDs generados.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static void ejecutarLote(Connection con, PreparedStatement ps, String sql, List<Producto> lote,
+            List<Integer> ids) throws SQLException {
+        long inicio = Metricas.iniciar();
+        ps.executeBatch();
+        con.commit();
+
+        int i = 0;
+        try (ResultSet rs = ps.getGeneratedKeys()) {
+            while (rs.next() && i < lote.size()) {
+                int id = rs.getInt(1);
+                Producto producto = lote.get(i++);
+                producto.setId(id);
+                INDICE_NOMBRES.indexar(id, producto.getNombre());
+                INDICE_TEXTO.indexar(id, textoIndexado(producto.getNombre(), producto.getDescripcion()));
+                ids.add(id);
+            }
+        }
+
+        OP_INSERTAR_LOTE.registrar(inicio, sql, 4 * lote.size(), lote.size());
+        lote.clear();
+    }
+
     /**
      * Imprime la tabla de productos usando metadatos.
      */
@@ -0,0 +1,378 @@
+package com.inventario.productos;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.inventario.bbdd.ConexionBBDD;
+import com.inventario.metricas.Metricas;
+import com.inventario.metricas.Operacion;
+
+/**
+ * Reservas temporales de stock para los carritos que se están preparando.
+ * <p>
+ * Mientras se prepara una venta, las unidades elegidas quedan reservadas
+ * durante {@code reservas.ttlSegundos} y el resto de carritos ven como
+ * disponible el stock menos lo reservado, sin bloquear filas en la base de
+ * datos. Las cantidades reservadas por producto se guardan en memoria,
+ * repartidas en franjas con su propio cerrojo para que dos carritos con
+ * productos distintos no se esperen.
+ * <p>
+ * Cada reserva se guarda también en la tabla {@code reserva_stock}, de la que se
+ * recargan al arrancar las que no hayan caducado. Un hilo en segundo plano
+ * libera las caducadas cada {@code reservas.barridoSegundos}.
+ * <p>
+ * Las reservas solo las respetan los carritos que las usan: una venta
+ * registrada directamente con {@code ServicioVentas} solo comprueba el stock.
+ */
+public class ReservasStock {
+
+    /** Número de franjas (potencia de dos). */
+    private static final int NUMERO_FRANJAS = 32;
+
+    /** Métricas de reservar. */
+    private static final Operacion OP_RESERVAR = Metricas.operacion("ReservasStock.reservar");
+
+    /** Métricas de liberar. */
+    private static final Operacion OP_LIBERAR = Metricas.operacion("ReservasStock.liberar");
+
+    /** Métricas de cada barrido de reservas caducadas. */
+    private static final Operacion OP_BARRER = Metricas.operacion("ReservasStock.barrer");
+
+    /** Métricas de la carga inicial. */
+    private static final Operacion OP_CARGAR = Metricas.operacion("ReservasStock.cargar");
+
+    /** Unidades reservadas por producto, repartidas en franjas. */
+    private static final Franja[] FRANJAS = new Franja[NUMERO_FRANJAS];
+
+    static {
+        for (int i = 0; i < NUMERO_FRANJAS; i++) {
+            FRANJAS[i] = new Franja();
+        }
+    }
+
+    /** Reservas activas por ID. */
+    private static final Map<Long, Reserva> RESERVAS = new ConcurrentHashMap<>();
+
+    /** Hilo que libera las reservas caducadas. Es null si no se ha iniciado. */
+    private static ScheduledExecutorService barrendero;
+
+    /**
+     * Unidad de stock reservada para un carrito.
+     */
+    public static final class Reserva {
+
+        /** ID de la reserva en {@code reserva_stock}. */
+        private final long id;
+
+        /** ID del producto. */
+        private final int idProducto;
+
+        /** Unidades reservadas. */
+        private final int cantidad;
+
+        /** Momento de caducidad, en milisegundos desde la época. */
+        private final long caduca;
+
+        /**
+         * Constructor.
+         *
+         * @param id         ID de la reserva.
+         * @param idProducto ID del producto.
+         * @param cantidad   Unidades reservadas.
+         * @param caduca     Momento de caducidad en milisegundos.
+         */
+        private Reserva(long id, int idProducto, int cantidad, long caduca) {
+            this.id = id;
+            this.idProducto = idProducto;
+            this.cantidad = cantidad;
+            this.caduca = caduca;
+        }
+
+        /**
+         * Obtiene el ID de la reserva.
+         *
+         * @return El ID.
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * Obtiene el ID del producto reservado.
+         *
+         * @return El ID del producto.
+         */
+        public int getIdProducto() {
+            return idProducto;
+        }
+
+        /**
+         * Obtiene las unidades reservadas.
+         *
+         * @return La cantidad.
+         */
+        public int getCantidad() {
+            return cantidad;
+        }
+    }
+
+    /**
+     * Unidades reservadas de los productos de una franja, con su cerrojo.
+     */
+    private static final class Franja {
+
+        /** Protege las cantidades. */
+        private final ReentrantLock cerrojo = new ReentrantLock();
+
+        /** Unidades reservadas por ID de producto. */
+        private final Map<Integer, Integer> reservado = new HashMap<>();
+    }
+
+    /**
+     * Carga las reservas vigentes de la base de datos y arranca el barrido de
+     * las caducadas. Se llama una vez al arrancar la aplicación.
+     *
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static synchronized void iniciar() throws SQLException {
+        if (barrendero != null) {
+            return;
+        }
+        cargar();
+
+        long periodo = Math.max(1, ConexionBBDD.getPropiedadEntera("reservas.barridoSegundos", 10));
+        barrendero = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "reservas-stock-barrendero");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        barrendero.scheduleWithFixedDelay(ReservasStock::barrer, periodo, periodo, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Detiene el barrido de reservas caducadas. Las reservas siguen en la tabla
+     * y se recargarán en el próximo arranque si no han caducado.
+     */
+    public static synchronized void detener() {
+        if (barrendero != null) {
+            barrendero.shutdownNow();
+            barrendero = null;
+        }
+    }
+
+    /**
+     * Calcula el stock disponible de un producto: su stock menos lo reservado por
+     * los carritos abiertos.
+     *
+     * @param producto El producto.
+     * @return Unidades disponibles (nunca negativas).
+     */
+    public static int disponible(Producto producto) {
+        Franja franja = franja(producto.getId());
+        franja.cerrojo.lock();
+        try {
+            return Math.max(0, producto.getStock() - franja.reservado.getOrDefault(producto.getId(), 0));
+        } finally {
+            franja.cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Reserva unidades de un producto si hay suficientes disponibles.
+     *
+     * @param producto El producto, con su stock actual.
+     * @param cantidad Unidades a reservar.
+     * @return La reserva, o null si no hay suficientes unidades disponibles.
+     * @throws SQLException Si no se puede guardar la reserva; en ese caso no se
+     *                      reserva nada.
+     */
+    public static Reserva reservar(Producto producto, int cantidad) throws SQLException {
+        int idProducto = producto.getId();
+        Franja franja = franja(idProducto);
+
+        franja.cerrojo.lock();
+        try {
+            int reservado = franja.reservado.getOrDefault(idProducto, 0);
+            if (producto.getStock() - reservado < cantidad) {
+                return null;
+            }
+            franja.reservado.put(idProducto, reservado + cantidad);
+        } finally {
+            franja.cerrojo.unlock();
+        }
+
+        // La tabla se escribe fuera del cerrojo; si falla se devuelven las unidades
+        long caduca = System.currentTimeMillis()
+                + TimeUnit.SECONDS.toMillis(Math.max(1, ConexionBBDD.getPropiedadEntera("reservas.ttlSegundos", 600)));
+        try {
+            Reserva reserva = new Reserva(insertar(idProducto, cantidad, caduca), idProducto, cantidad, caduca);
+            RESERVAS.put(reserva.id, reserva);
+            return reserva;
+        } catch (SQLException e) {
+            restar(idProducto, cantidad);
+            throw e;
+        }
+    }
+
+    /**
+     * Libera una reserva, porque la venta se ha confirmado o se ha descartado.
+     * Liberar una reserva que ya ha caducado no hace nada.
+     *
+     * @param reserva La reserva.
+     * @throws SQLException Si no se puede borrar de la tabla; en memoria ya está
+     *                      liberada y el barrido la borrará al caducar.
+     */
+    public static void liberar(Reserva reserva) throws SQLException {
+        if (RESERVAS.remove(reserva.id) == null) {
+            return;
+        }
+        restar(reserva.idProducto, reserva.cantidad);
+
+        long inicio = Metricas.iniciar();
+        String sql = "DELETE FROM reserva_stock WHERE id_reserva = ?";
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setLong(1, reserva.id);
+            OP_LIBERAR.registrar(inicio, sql, 1, ps.executeUpdate());
+        }
+    }
+
+    /**
+     * Guarda una reserva en la tabla.
+     *
+     * @param idProducto ID del producto.
+     * @param cantidad   Unidades reservadas.
+     * @param caduca     Momento de caducidad en milisegundos.
+     * @return El ID generado.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static long insertar(int idProducto, int cantidad, long caduca) throws SQLException {
+        long inicio = Metricas.iniciar();
+        String sql = "INSERT INTO reserva_stock (id_producto, cantidad, caduca) VALUES (?, ?, ?)";
+
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setInt(1, idProducto);
+            ps.setInt(2, cantidad);
+            ps.setTimestamp(3, new Timestamp(caduca));
+            ps.executeUpdate();
+
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (!rs.next()) {
+                    throw new SQLException("Error al obtener el ID de la reserva generada.");
+                }
+                OP_RESERVAR.registrar(inicio, sql, 3, 1);
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * Borra de la tabla las reservas caducadas y carga en memoria las vigentes.
+     *
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static void cargar() throws SQLException {
+        long inicio = Metricas.iniciar();
+        String sqlBorrar = "DELETE FROM reserva_stock WHERE caduca < ?";
+        String sql = "SELECT id_reserva, id_producto, cantidad, caduca FROM reserva_stock";
+        int filas = 0;
+
+        try (Connection con = ConexionBBDD.obtenerConexion()) {
+            try (PreparedStatement ps = con.prepareStatement(sqlBorrar)) {
+                ps.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+                ps.executeUpdate();
+            }
+
+            try (Statement st = con.createStatement();
+                    ResultSet rs = st.executeQuery(sql)) {
+                while (rs.next()) {
+                    Reserva reserva = new Reserva(rs.getLong("id_reserva"), rs.getInt("id_producto"),
+                            rs.getInt("cantidad"), rs.getTimestamp("caduca").getTime());
+                    if (RESERVAS.putIfAbsent(reserva.id, reserva) == null) {
+                        Franja franja = franja(reserva.idProducto);
+                        franja.cerrojo.lock();
+                        try {
+                            franja.reservado.merge(reserva.idProducto, reserva.cantidad, Integer::sum);
+                        } finally {
+                            franja.cerrojo.unlock();
+                        }
+                    }
+                    filas++;
+                }
+            }
+        }
+        OP_CARGAR.registrar(inicio, sql, 0, filas);
+    }
+
+    /**
+     * Libera las reservas caducadas, en memoria y en la tabla. Se ejecuta
+     * periódicamente en el hilo de barrido.
+     */
+    private static void barrer() {
+        long inicio = Metricas.iniciar();
+        long ahora = System.currentTimeMillis();
+        int caducadas = 0;
+
+        for (Reserva reserva : RESERVAS.values()) {
+            if (reserva.caduca < ahora && RESERVAS.remove(reserva.id, reserva)) {
+                restar(reserva.idProducto, reserva.cantidad);
+                caducadas++;
+            }
+        }
+
+        String sql = "DELETE FROM reserva_stock WHERE caduca < ?";
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setTimestamp(1, new Timestamp(ahora));
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            // Se volverá a intentar en el siguiente barrido
+            System.err.println("Error al borrar las reservas de stock caducadas: " + e.getMessage());
+        }
+        OP_BARRER.registrar(inicio, sql, 1, caducadas);
+    }
+
+    /**
+     * Resta unidades de lo reservado de un producto.
+     *
+     * @param idProducto ID del producto.
+     * @param cantidad   Unidades a restar.
+     */
+    private static void restar(int idProducto, int cantidad) {
+        Franja franja = franja(idProducto);
+        franja.cerrojo.lock();
+        try {
+            int resto = franja.reservado.getOrDefault(idProducto, 0) - cantidad;
+            if (resto > 0) {
+                franja.reservado.put(idProducto, resto);
+            } else {
+                franja.reservado.remove(idProducto);
+            }
+        } finally {
+            franja.cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Obtiene la franja de un producto.
+     *
+     * @param idProducto ID del producto.
+     * @return La franja.
+     */
+    private static Franja franja(int idProducto) {
+        int h = idProducto * 0x9E3779B9;
+        return FRANJAS[(h ^ (h >>> 16)) & (NUMERO_FRANJAS - 1)];
+    }
+}
@@ -0,0 +1,222 @@
+package com.inventario.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caché acotada en memoria con expulsión LRU y caducidad por tiempo.
+ * <p>
+ * Es segura para varios hilos. Los valores se devuelven tal cual se guardaron,
+ * así que no se deben modificar.
+ *
+ * @param <K> Tipo de la clave.
+ * @param <V> Tipo del valor.
+ */
+public class CacheLRU<K, V> implements CacheLRUMBean {
+
+    /**
+     * Número máximo de entradas.
+     */
+    private final int capacidad;
+
+    /**
+     * Tiempo de vida de cada entrada en nanosegundos (0 sin caducidad).
+     */
+    private final long ttlNanos;
+
+    /**
+     * Entradas, en orden de último acceso.
+     */
+    private final LinkedHashMap<K, Entrada<V>> entradas;
+
+    /**
+     * Protege las entradas (un LinkedHashMap en orden de acceso se modifica
+     * también al leer).
+     */
+    private final ReentrantLock cerrojo = new ReentrantLock();
+
+    /**
+     * Consultas servidas desde la caché.
+     */
+    private final AtomicLong aciertos = new AtomicLong();
+
+    /**
+     * Consultas no servidas desde la caché.
+     */
+    private final AtomicLong fallos = new AtomicLong();
+
+    /**
+     * Entradas expulsadas por falta de espacio.
+     */
+    private final AtomicLong expulsiones = new AtomicLong();
+
+    /**
+     * Entradas descartadas por caducidad.
+     */
+    private final AtomicLong caducadas = new AtomicLong();
+
+    /**
+     * Crea una caché vacía.
+     *
+     * @param capacidad   Número máximo de entradas.
+     * @param ttlSegundos Tiempo de vida de cada entrada en segundos (0 sin
+     *                    caducidad).
+     */
+    public CacheLRU(int capacidad, long ttlSegundos) {
+        this.capacidad = Math.max(1, capacidad);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(0, ttlSegundos));
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> eldest) {
+                boolean expulsar = size() > CacheLRU.this.capacidad;
+                if (expulsar) {
+                    expulsiones.incrementAndGet();
+                }
+                return expulsar;
+            }
+        };
+    }
+
+    /**
+     * Obtiene un valor de la caché.
+     *
+     * @param clave Clave del valor.
+     * @return El valor, o null si no está o ha caducado.
+     */
+    public V obtener(K clave) {
+        V valor = null;
+        cerrojo.lock();
+        try {
+            Entrada<V> entrada = entradas.get(clave);
+            if (entrada != null) {
+                if (ttlNanos > 0 && System.nanoTime() - entrada.guardado > ttlNanos) {
+                    entradas.remove(clave);
+                    caducadas.incrementAndGet();
+                } else {
+                    valor = entrada.valor;
+                }
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+
+        if (valor != null) {
+            aciertos.incrementAndGet();
+        } else {
+            fallos.incrementAndGet();
+        }
+        return valor;
+    }
+
+    /**
+     * Guarda o sustituye un valor.
+     *
+     * @param clave Clave del valor.
+     * @param valor Valor a guardar.
+     */
+    public void guardar(K clave, V valor) {
+        cerrojo.lock();
+        try {
+            entradas.put(clave, new Entrada<>(valor, System.nanoTime()));
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Elimina un valor de la caché.
+     *
+     * @param clave Clave del valor.
+     */
+    public void invalidar(K clave) {
+        cerrojo.lock();
+        try {
+            entradas.remove(clave);
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    @Override
+    public void vaciar() {
+        cerrojo.lock();
+        try {
+            entradas.clear();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    @Override
+    public int getTamano() {
+        cerrojo.lock();
+        try {
+            return entradas.size();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    @Override
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    @Override
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    @Override
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    @Override
+    public double getTasaAciertos() {
+        long total = aciertos.get() + fallos.get();
+        return total == 0 ? 0 : (double) aciertos.get() / total;
+    }
+
+    @Override
+    public long getExpulsiones() {
+        return expulsiones.get();
+    }
+
+    @Override
+    public long getCaducadas() {
+        return caducadas.get();
+    }
+
+    /**
+     * Valor guardado junto con el momento en que se guardó.
+     *
+     * @param <V> Tipo del valor.
+     */
+    private static final class Entrada<V> {
+
+        /**
+         * Valor guardado.
+         */
+        private final V valor;
+
+        /**
+         * Valor de {@link System#nanoTime()} al guardarlo.
+         */
+        private final long guardado;
+
+        /**
+         * Constructor.
+         *
+         * @param valor    Valor guardado.
+         * @param guardado Momento en que se guardó.
+         */
+        private Entrada(V valor, long guardado) {
+            this.valor = valor;
+            this.guardado = guardado;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.inventario.util;
+
+/**
+ * Interfaz JMX de una caché LRU.
+ */
+public interface CacheLRUMBean {
+
+    /**
+     * Obtiene el número de entradas guardadas.
+     *
+     * @return Entradas en la caché.
+     */
+    int getTamano();
+
+    /**
+     * Obtiene el número máximo de entradas.
+     *
+     * @return Capacidad de la caché.
+     */
+    int getCapacidad();
+
+    /**
+     * Obtiene el número de consultas servidas desde la caché.
+     *
+     * @return Aciertos.
+     */
+    long getAciertos();
+
+    /**
+     * Obtiene el número de consultas que no estaban en la caché o habían
+     * caducado.
+     *
+     * @return Fallos.
+     */
+    long getFallos();
+
+    /**
+     * Obtiene la proporción de aciertos.
+     *
+     * @return Aciertos entre consultas totales (0 si no hay consultas).
+     */
+    double getTasaAciertos();
+
+    /**
+     * Obtiene el número de entradas expulsadas por falta de espacio.
+     *
+     * @return Expulsiones.
+     */
+    long getExpulsiones();
+
+    /**
+     * Obtiene el número de entradas descartadas por haber caducado.
+     *
+     * @return Caducadas.
+     */
+    long getCaducadas();
+
+    /**
+     * Vacía la caché.
+     */
+    void vaciar();
+}
@@ -0,0 +1,230 @@
+package com.inventario.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom sobre textos (emails...), sin distinguir mayúsculas ni los
+ * espacios de los extremos.
+ * <p>
+ * Responde si un texto <b>puede</b> estar en el conjunto: un "no" es seguro,
+ * un "sí" puede ser un falso positivo con la probabilidad indicada al crearlo,
+ * mientras no se añadan más textos de los previstos. Cuenta los textos que se
+ * le añaden para saber cuándo los supera ({@link #estaSaturado()});
+ * {@link FiltroBloomEscalable} encadena entonces otro filtro mayor. No admite
+ * quitar textos; los que dejan de existir solo aumentan los falsos positivos
+ * hasta que se vuelve a construir.
+ * <p>
+ * Es seguro para varios hilos y no bloquea: cada bit se activa con una
+ * operación atómica.
+ */
+public class FiltroBloom {
+
+    /**
+     * Bits del filtro, de 64 en 64.
+     */
+    private final AtomicLongArray bits;
+
+    /**
+     * Número de bits del filtro.
+     */
+    private final long numeroBits;
+
+    /**
+     * Número de posiciones que se activan por cada texto.
+     */
+    private final int numeroHashes;
+
+    /**
+     * Número de textos para el que se ha dimensionado.
+     */
+    private final int capacidad;
+
+    /**
+     * Probabilidad de falso positivo con la que se ha dimensionado.
+     */
+    private final double tasaFalsosPositivos;
+
+    /**
+     * Textos añadidos (los repetidos cuentan cada vez).
+     */
+    private final AtomicInteger elementos = new AtomicInteger();
+
+    /**
+     * Crea un filtro vacío dimensionado para un número de textos y una tasa de
+     * falsos positivos.
+     *
+     * @param esperados             Número de textos previsto.
+     * @param tasaFalsosPositivos   Probabilidad de falso positivo, entre 0 y 1
+     *                              (por ejemplo 0.01).
+     */
+    public FiltroBloom(int esperados, double tasaFalsosPositivos) {
+        if (tasaFalsosPositivos <= 0 || tasaFalsosPositivos >= 1) {
+            throw new IllegalArgumentException("La tasa de falsos positivos debe estar entre 0 y 1");
+        }
+        int n = Math.max(1, esperados);
+        // m = -n ln p / (ln 2)^2 y k = m/n ln 2, redondeando m a palabras de 64 bits
+        double log2 = Math.log(2);
+        long palabras = Math.max(1, (long) Math.ceil(-n * Math.log(tasaFalsosPositivos) / (log2 * log2) / 64));
+        this.bits = new AtomicLongArray(Math.toIntExact(palabras));
+        this.numeroBits = palabras * 64;
+        this.numeroHashes = Math.max(1, (int) Math.round((double) numeroBits / n * log2));
+        this.capacidad = n;
+        this.tasaFalsosPositivos = tasaFalsosPositivos;
+    }
+
+    /**
+     * Añade un texto al filtro.
+     *
+     * @param texto El texto (los null se ignoran).
+     */
+    public void agregar(String texto) {
+        if (texto != null) {
+            agregarHuella(huella(texto));
+        }
+    }
+
+    /**
+     * Añade un texto al filtro a partir de su huella, calculada antes con
+     * {@link #huella(String)}.
+     *
+     * @param huella La huella del texto.
+     */
+    public void agregarHuella(long huella) {
+        int h1 = (int) huella;
+        int h2 = (int) (huella >>> 32);
+        for (int i = 0; i < numeroHashes; i++) {
+            long bit = posicion(h1, h2, i);
+            int palabra = (int) (bit >>> 6);
+            long mascara = 1L << bit;
+            long actual = bits.get(palabra);
+            while ((actual & mascara) == 0 && !bits.compareAndSet(palabra, actual, actual | mascara)) {
+                actual = bits.get(palabra);
+            }
+        }
+        elementos.incrementAndGet();
+    }
+
+    /**
+     * Indica si un texto puede estar en el filtro.
+     *
+     * @param texto El texto.
+     * @return false si seguro que no está; true si puede estar.
+     */
+    public boolean puedeContener(String texto) {
+        return texto != null && puedeContenerHuella(huella(texto));
+    }
+
+    /**
+     * Indica si un texto puede estar en el filtro a partir de su huella,
+     * calculada antes con {@link #huella(String)}.
+     *
+     * @param huella La huella del texto.
+     * @return false si seguro que no está; true si puede estar.
+     */
+    public boolean puedeContenerHuella(long huella) {
+        int h1 = (int) huella;
+        int h2 = (int) (huella >>> 32);
+        for (int i = 0; i < numeroHashes; i++) {
+            long bit = posicion(h1, h2, i);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Obtiene el número de bits del filtro.
+     *
+     * @return El número de bits.
+     */
+    public long getNumeroBits() {
+        return numeroBits;
+    }
+
+    /**
+     * Obtiene el número de posiciones que se activan por cada texto.
+     *
+     * @return El número de funciones hash.
+     */
+    public int getNumeroHashes() {
+        return numeroHashes;
+    }
+
+    /**
+     * Obtiene el número de textos para el que se ha dimensionado el filtro.
+     *
+     * @return La capacidad.
+     */
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    /**
+     * Obtiene la probabilidad de falso positivo con la que se ha dimensionado.
+     *
+     * @return La tasa de falsos positivos.
+     */
+    public double getTasaFalsosPositivos() {
+        return tasaFalsosPositivos;
+    }
+
+    /**
+     * Obtiene el número de textos añadidos.
+     *
+     * @return Los textos añadidos, contando cada vez los repetidos.
+     */
+    public int getElementos() {
+        return elementos.get();
+    }
+
+    /**
+     * Indica si se han añadido más textos de los previstos, con lo que la tasa
+     * de falsos positivos ya es mayor que la indicada al crearlo.
+     *
+     * @return true si se ha superado la capacidad.
+     */
+    public boolean estaSaturado() {
+        return elementos.get() > capacidad;
+    }
+
+    /**
+     * Calcula la huella de 64 bits de un texto, después de quitar los espacios
+     * de los extremos y pasarlo a minúsculas. Permite leer los textos sin
+     * guardarlos y construir el filtro cuando ya se sabe cuántos hay.
+     *
+     * @param texto El texto.
+     * @return La huella del texto.
+     */
+    public static long huella(String texto) {
+        byte[] bytes = texto.trim().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+        // FNV-1a de 64 bits con una mezcla final para repartir los bits altos y bajos
+        long h = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Calcula la posición i-ésima de un texto por doble hash.
+     *
+     * @param h1 Primera mitad de la huella.
+     * @param h2 Segunda mitad de la huella.
+     * @param i  Número de la posición.
+     * @return El bit, entre 0 y el número de bits.
+     */
+    private long posicion(int h1, int h2, int i) {
+        long combinado = (h1 & 0xffffffffL) + (long) i * (h2 & 0xffffffffL);
+        return Math.floorMod(combinado, numeroBits);
+    }
+}
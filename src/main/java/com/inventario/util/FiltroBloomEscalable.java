@@ -0,0 +1,142 @@
+package com.inventario.util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Cadena de filtros de Bloom que crece con los textos añadidos.
+ * <p>
+ * Los textos se añaden al último filtro. Cuando este supera su capacidad se
+ * encadena otro con el doble de capacidad y la mitad de tasa de falsos
+ * positivos, de modo que la tasa total nunca pasa de la indicada al crearla
+ * (p/2 + p/4 + ... &lt; p). Un texto puede estar si puede estar en cualquiera
+ * de los filtros.
+ * <p>
+ * Es seguro para varios hilos: añadir y consultar no bloquean, y solo se
+ * sincroniza el encadenado de un filtro nuevo. Como los filtros anteriores se
+ * siguen consultando, un texto añadido mientras se encadena otro no se pierde.
+ */
+public class FiltroBloomEscalable {
+
+    /**
+     * Filtros de la cadena, del primero al último.
+     */
+    private final List<FiltroBloom> filtros = new CopyOnWriteArrayList<>();
+
+    /**
+     * Crea una cadena vacía con un primer filtro dimensionado para un número
+     * de textos.
+     *
+     * @param esperados           Número de textos previsto para el primer filtro.
+     * @param tasaFalsosPositivos Probabilidad de falso positivo de toda la
+     *                            cadena, entre 0 y 1 (por ejemplo 0.01).
+     */
+    public FiltroBloomEscalable(int esperados, double tasaFalsosPositivos) {
+        filtros.add(new FiltroBloom(esperados, tasaFalsosPositivos / 2));
+    }
+
+    /**
+     * Añade un texto a la cadena.
+     *
+     * @param texto El texto (los null se ignoran).
+     */
+    public void agregar(String texto) {
+        if (texto != null) {
+            agregarHuella(FiltroBloom.huella(texto));
+        }
+    }
+
+    /**
+     * Añade un texto a la cadena a partir de su huella, calculada antes con
+     * {@link FiltroBloom#huella(String)}. Si el último filtro queda saturado,
+     * encadena otro.
+     *
+     * @param huella La huella del texto.
+     */
+    public void agregarHuella(long huella) {
+        FiltroBloom ultimo = ultimo();
+        ultimo.agregarHuella(huella);
+        if (ultimo.estaSaturado()) {
+            encadenar(ultimo, 0);
+        }
+    }
+
+    /**
+     * Prepara la cadena para una carga de textos: si no caben en el último
+     * filtro, encadena ya uno con sitio para todos, en lugar de ir doblando
+     * durante la carga.
+     *
+     * @param adicionales Número de textos que se van a añadir.
+     */
+    public void reservar(int adicionales) {
+        FiltroBloom ultimo = ultimo();
+        if (ultimo.getCapacidad() - ultimo.getElementos() < adicionales) {
+            encadenar(ultimo, adicionales);
+        }
+    }
+
+    /**
+     * Indica si un texto puede estar en la cadena.
+     *
+     * @param texto El texto.
+     * @return false si seguro que no está; true si puede estar.
+     */
+    public boolean puedeContener(String texto) {
+        if (texto == null) {
+            return false;
+        }
+        long huella = FiltroBloom.huella(texto);
+        for (FiltroBloom filtro : filtros) {
+            if (filtro.puedeContenerHuella(huella)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Obtiene el número de filtros de la cadena.
+     *
+     * @return El número de filtros.
+     */
+    public int getNumeroFiltros() {
+        return filtros.size();
+    }
+
+    /**
+     * Obtiene el número de bits de todos los filtros de la cadena.
+     *
+     * @return El número de bits.
+     */
+    public long getNumeroBits() {
+        long total = 0;
+        for (FiltroBloom filtro : filtros) {
+            total += filtro.getNumeroBits();
+        }
+        return total;
+    }
+
+    /**
+     * Obtiene el último filtro de la cadena, al que se añaden los textos.
+     *
+     * @return El último filtro.
+     */
+    private FiltroBloom ultimo() {
+        return filtros.get(filtros.size() - 1);
+    }
+
+    /**
+     * Encadena un filtro nuevo tras el último, si sigue siendo el indicado
+     * (otro hilo puede haberlo encadenado ya).
+     *
+     * @param lleno  El filtro que se ha llenado o no tiene sitio.
+     * @param minimo Capacidad mínima del filtro nuevo.
+     */
+    private synchronized void encadenar(FiltroBloom lleno, int minimo) {
+        if (ultimo() != lleno) {
+            return;
+        }
+        int capacidad = (int) Math.min(Integer.MAX_VALUE, Math.max(2L * lleno.getCapacidad(), minimo));
+        filtros.add(new FiltroBloom(capacidad, lleno.getTasaFalsosPositivos() / 2));
+    }
+}
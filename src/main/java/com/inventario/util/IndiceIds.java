@@ -0,0 +1,121 @@
+package com.inventario.util;
+
+import java.util.BitSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Conjunto de IDs en memoria sobre un mapa de bits: un bit por ID posible,
+ * unos 125 KB por cada millón de IDs.
+ * <p>
+ * Es seguro para varios hilos. Hasta que se carga con {@link #cargar(BitSet)}
+ * no contiene nada e {@link #estaCargado()} devuelve false, para que quien lo
+ * use pueda consultar la base de datos mientras tanto.
+ */
+public class IndiceIds {
+
+    /**
+     * Bits de los IDs presentes.
+     */
+    private BitSet ids = new BitSet();
+
+    /**
+     * Indica si ya se ha cargado el contenido inicial.
+     */
+    private volatile boolean cargado;
+
+    /**
+     * Protege el mapa de bits (BitSet no es seguro para varios hilos).
+     */
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+    /**
+     * Sustituye el contenido del índice.
+     *
+     * @param nuevos Los IDs presentes. El índice se queda con el objeto, que no
+     *               se debe modificar después.
+     */
+    public void cargar(BitSet nuevos) {
+        cerrojo.writeLock().lock();
+        try {
+            ids = nuevos;
+            cargado = true;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indica si el índice ya se ha cargado.
+     *
+     * @return true si se puede consultar.
+     */
+    public boolean estaCargado() {
+        return cargado;
+    }
+
+    /**
+     * Indica si un ID está en el índice.
+     *
+     * @param id El ID.
+     * @return true si está.
+     */
+    public boolean contiene(int id) {
+        if (id < 0) {
+            return false;
+        }
+        cerrojo.readLock().lock();
+        try {
+            return ids.get(id);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Añade un ID al índice.
+     *
+     * @param id El ID.
+     */
+    public void agregar(int id) {
+        if (id < 0) {
+            return;
+        }
+        cerrojo.writeLock().lock();
+        try {
+            ids.set(id);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quita un ID del índice.
+     *
+     * @param id El ID.
+     */
+    public void quitar(int id) {
+        if (id < 0) {
+            return;
+        }
+        cerrojo.writeLock().lock();
+        try {
+            ids.clear(id);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cuenta los IDs del índice.
+     *
+     * @return El número de IDs presentes.
+     */
+    public int tamano() {
+        cerrojo.readLock().lock();
+        try {
+            return ids.cardinality();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,526 @@
+package com.inventario.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Índice invertido de n-gramas en memoria para buscar registros por cualquier
+ * parte de sus textos, sin distinguir mayúsculas ni tildes.
+ * <p>
+ * Cada palabra se indexa con un espacio delante y otro detrás ("cafe" da
+ * " ca", "caf", "afe" y "fe " con n = 3). Cada n-grama guarda la lista
+ * ordenada de IDs que lo contienen en un {@code int[]}, sin objetos por
+ * entrada. Una búsqueda cuenta, recorriendo a la vez las listas de sus
+ * n-gramas, cuántos tiene cada registro, y devuelve los que superan un
+ * porcentaje mínimo: así también se encuentran textos con pequeñas erratas.
+ * <p>
+ * Es seguro para varios hilos: las búsquedas comparten un cerrojo de lectura y
+ * las actualizaciones toman el de escritura.
+ */
+public class IndiceNGramas {
+
+    /**
+     * Longitud de los n-gramas.
+     */
+    private final int n;
+
+    /**
+     * Porcentaje mínimo de n-gramas de la consulta que debe tener un registro.
+     */
+    private final int porcentajeMinimo;
+
+    /**
+     * Lista de IDs de cada n-grama.
+     */
+    private Map<String, ListaIds> listas = new HashMap<>();
+
+    /**
+     * Texto normalizado de cada registro, para quitar sus n-gramas al
+     * actualizarlo y para desempatar el orden de los resultados.
+     */
+    private Map<Integer, String> textos = new HashMap<>();
+
+    /**
+     * Indica si ya se ha cargado el contenido inicial.
+     */
+    private volatile boolean cargado;
+
+    /**
+     * Protege las listas y los textos.
+     */
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+    /**
+     * Crea un índice vacío.
+     *
+     * @param n                Longitud de los n-gramas (al menos 2).
+     * @param porcentajeMinimo Porcentaje mínimo (1-100) de n-gramas de la
+     *                         consulta que debe tener un registro para salir.
+     */
+    public IndiceNGramas(int n, int porcentajeMinimo) {
+        this.n = Math.max(2, n);
+        this.porcentajeMinimo = Math.min(100, Math.max(1, porcentajeMinimo));
+    }
+
+    /**
+     * Sustituye el contenido del índice, construyéndolo en paralelo: cada hilo
+     * indexa un tramo de registros y los tramos se unen después en orden.
+     *
+     * @param ids          Los IDs de los registros.
+     * @param textosNuevos El texto de cada registro, en la misma posición que
+     *                     su ID.
+     */
+    public void cargar(int[] ids, String[] textosNuevos) {
+        String[] normalizados = new String[ids.length];
+        IntStream.range(0, ids.length).parallel().forEach(i -> normalizados[i] = normalizar(textosNuevos[i]));
+        Integer[] orden = IntStream.range(0, ids.length).boxed().toArray(Integer[]::new);
+        Arrays.sort(orden, Comparator.comparingInt(i -> ids[i]));
+
+        int partes = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), ids.length / 1000));
+        int porParte = (ids.length + partes - 1) / Math.max(1, partes);
+
+        // Cada tramo tiene IDs mayores que el anterior, así que sus listas se pueden concatenar
+        List<Map<String, ListaIds>> tramos = IntStream.range(0, partes).parallel()
+                .mapToObj(parte -> {
+                    Map<String, ListaIds> tramo = new HashMap<>();
+                    int hasta = Math.min(ids.length, (parte + 1) * porParte);
+                    int anterior = Integer.MIN_VALUE;
+                    for (int i = parte * porParte; i < hasta; i++) {
+                        int id = ids[orden[i]];
+                        if (id == anterior) {
+                            continue;
+                        }
+                        anterior = id;
+                        for (String grama : gramas(normalizados[orden[i]], false)) {
+                            tramo.computeIfAbsent(grama, g -> new ListaIds()).anexar(id);
+                        }
+                    }
+                    return tramo;
+                })
+                .toList();
+
+        Map<String, ListaIds> nuevas = new HashMap<>();
+        for (Map<String, ListaIds> tramo : tramos) {
+            for (Map.Entry<String, ListaIds> lista : tramo.entrySet()) {
+                ListaIds destino = nuevas.putIfAbsent(lista.getKey(), lista.getValue());
+                if (destino != null) {
+                    destino.anexar(lista.getValue());
+                }
+            }
+        }
+        Map<Integer, String> textosPorId = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            textosPorId.put(ids[i], normalizados[i]);
+        }
+
+        cerrojo.writeLock().lock();
+        try {
+            listas = nuevas;
+            textos = textosPorId;
+            cargado = true;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indica si el índice ya se ha cargado.
+     *
+     * @return true si se puede consultar.
+     */
+    public boolean estaCargado() {
+        return cargado;
+    }
+
+    /**
+     * Indexa un registro, sustituyendo lo que hubiera de él.
+     *
+     * @param id    El ID del registro.
+     * @param texto El texto del registro.
+     */
+    public void indexar(int id, String texto) {
+        String normalizado = normalizar(texto);
+        cerrojo.writeLock().lock();
+        try {
+            quitarGramas(id, textos.put(id, normalizado));
+            for (String grama : gramas(normalizado, false)) {
+                listas.computeIfAbsent(grama, g -> new ListaIds()).insertar(id);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quita un registro del índice.
+     *
+     * @param id El ID del registro.
+     */
+    public void quitar(int id) {
+        cerrojo.writeLock().lock();
+        try {
+            quitarGramas(id, textos.remove(id));
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Obtiene el número de registros indexados.
+     *
+     * @return El número de registros.
+     */
+    public int tamano() {
+        cerrojo.readLock().lock();
+        try {
+            return textos.size();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca los registros que contienen la consulta o buena parte de ella.
+     * Las palabras de la consulta más cortas que n solo coinciden con el
+     * principio de una palabra.
+     * <p>
+     * Los resultados se ordenan por el número de n-gramas de la consulta que
+     * tienen; a igualdad, primero los que contienen la consulta tal cual y
+     * después los de texto más corto.
+     *
+     * @param consulta El texto buscado.
+     * @param maximo   Número máximo de resultados.
+     * @return Los IDs encontrados, del más al menos relevante.
+     */
+    public List<Integer> buscar(String consulta, int maximo) {
+        String normalizada = normalizar(consulta);
+        String[] buscados = gramas(normalizada, true).toArray(new String[0]);
+        if (buscados.length == 0 || maximo <= 0) {
+            return List.of();
+        }
+        int minimo = Math.max(1, (buscados.length * porcentajeMinimo + 99) / 100);
+
+        cerrojo.readLock().lock();
+        try {
+            List<ListaIds> encontradas = new ArrayList<>(buscados.length);
+            for (String grama : buscados) {
+                ListaIds lista = listas.get(grama);
+                if (lista != null && lista.tamano > 0) {
+                    encontradas.add(lista);
+                }
+            }
+            if (encontradas.size() < minimo) {
+                return List.of();
+            }
+
+            // Los peores de los mejores quedan en la cabeza, para descartarlos
+            Comparator<Candidato> relevancia = Comparator.comparingInt((Candidato c) -> c.coincidencias)
+                    .thenComparing(c -> c.contieneConsulta)
+                    .thenComparing(Comparator.comparingInt((Candidato c) -> c.longitud).reversed());
+            PriorityQueue<Candidato> mejores = new PriorityQueue<>(maximo + 1, relevancia);
+
+            long apariciones = 0;
+            int menor = Integer.MAX_VALUE;
+            int mayor = Integer.MIN_VALUE;
+            for (ListaIds lista : encontradas) {
+                apariciones += lista.tamano;
+                menor = Math.min(menor, lista.ids[0]);
+                mayor = Math.max(mayor, lista.ids[lista.tamano - 1]);
+            }
+
+            // Con IDs densos es más rápido contar sobre una tabla que mezclar las listas
+            if ((long) mayor - menor < 4 * apariciones) {
+                contarEnTabla(encontradas, menor, mayor, minimo, normalizada, maximo, mejores);
+            } else {
+                contarMezclando(encontradas, minimo, normalizada, maximo, mejores);
+            }
+
+            List<Candidato> ordenados = new ArrayList<>(mejores);
+            ordenados.sort(relevancia.reversed());
+            List<Integer> ids = new ArrayList<>(ordenados.size());
+            for (Candidato candidato : ordenados) {
+                ids.add(candidato.id);
+            }
+            return ids;
+
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cuenta las apariciones de cada ID en una tabla que cubre el rango de IDs
+     * de las listas. Debe tenerse el cerrojo de lectura.
+     *
+     * @param encontradas Las listas de los n-gramas de la consulta.
+     * @param menor       El menor ID de las listas.
+     * @param mayor       El mayor ID de las listas.
+     * @param minimo      n-gramas mínimos para ser candidato.
+     * @param consulta    La consulta normalizada.
+     * @param maximo      Número máximo de resultados.
+     * @param mejores     Los mejores candidatos hasta ahora.
+     */
+    private void contarEnTabla(List<ListaIds> encontradas, int menor, int mayor, int minimo, String consulta,
+            int maximo, PriorityQueue<Candidato> mejores) {
+        short[] cuentas = new short[mayor - menor + 1];
+        for (ListaIds lista : encontradas) {
+            for (int i = 0; i < lista.tamano; i++) {
+                cuentas[lista.ids[i] - menor]++;
+            }
+        }
+        for (int i = 0; i < cuentas.length; i++) {
+            if (cuentas[i] >= minimo) {
+                considerar(menor + i, cuentas[i], consulta, maximo, mejores);
+            }
+        }
+    }
+
+    /**
+     * Recorre las listas a la vez en orden de ID contando apariciones. Un
+     * registro con al menos {@code minimo} n-gramas aparece en alguna de las
+     * (listas - minimo + 1) listas más cortas: solo se recorren esas, y en las
+     * largas se busca cada candidato por búsqueda binaria. Debe tenerse el
+     * cerrojo de lectura.
+     *
+     * @param encontradas Las listas de los n-gramas de la consulta.
+     * @param minimo      n-gramas mínimos para ser candidato.
+     * @param consulta    La consulta normalizada.
+     * @param maximo      Número máximo de resultados.
+     * @param mejores     Los mejores candidatos hasta ahora.
+     */
+    private void contarMezclando(List<ListaIds> encontradas, int minimo, String consulta, int maximo,
+            PriorityQueue<Candidato> mejores) {
+        List<ListaIds> ordenadas = new ArrayList<>(encontradas);
+        ordenadas.sort(Comparator.comparingInt((ListaIds lista) -> lista.tamano));
+        int numCortas = ordenadas.size() - minimo + 1;
+        ListaIds[] cortas = ordenadas.subList(0, numCortas).toArray(new ListaIds[0]);
+        ListaIds[] largas = ordenadas.subList(numCortas, ordenadas.size()).toArray(new ListaIds[0]);
+        int[] posiciones = new int[cortas.length];
+
+        while (true) {
+            int id = Integer.MAX_VALUE;
+            boolean quedan = false;
+            for (int l = 0; l < cortas.length; l++) {
+                if (posiciones[l] < cortas[l].tamano) {
+                    quedan = true;
+                    id = Math.min(id, cortas[l].ids[posiciones[l]]);
+                }
+            }
+            if (!quedan) {
+                break;
+            }
+
+            int coincidencias = 0;
+            for (int l = 0; l < cortas.length; l++) {
+                if (posiciones[l] < cortas[l].tamano && cortas[l].ids[posiciones[l]] == id) {
+                    coincidencias++;
+                    posiciones[l]++;
+                }
+            }
+            for (ListaIds larga : largas) {
+                if (Arrays.binarySearch(larga.ids, 0, larga.tamano, id) >= 0) {
+                    coincidencias++;
+                }
+            }
+
+            if (coincidencias >= minimo) {
+                considerar(id, coincidencias, consulta, maximo, mejores);
+            }
+        }
+    }
+
+    /**
+     * Añade un candidato a los mejores, descartando el peor si sobran.
+     *
+     * @param id            ID del registro.
+     * @param coincidencias n-gramas de la consulta que tiene.
+     * @param consulta      La consulta normalizada.
+     * @param maximo        Número máximo de resultados.
+     * @param mejores       Los mejores candidatos hasta ahora.
+     */
+    private void considerar(int id, int coincidencias, String consulta, int maximo,
+            PriorityQueue<Candidato> mejores) {
+        if (mejores.size() == maximo && coincidencias < mejores.peek().coincidencias) {
+            return;
+        }
+        String texto = textos.get(id);
+        mejores.add(new Candidato(id, coincidencias, texto.contains(consulta), texto.length()));
+        if (mejores.size() > maximo) {
+            mejores.poll();
+        }
+    }
+
+    /**
+     * Quita los n-gramas de un texto de las listas de un registro. Debe tenerse
+     * el cerrojo de escritura.
+     *
+     * @param id    El ID del registro.
+     * @param texto Su texto normalizado anterior, o null si no estaba.
+     */
+    private void quitarGramas(int id, String texto) {
+        if (texto == null) {
+            return;
+        }
+        for (String grama : gramas(texto, false)) {
+            ListaIds lista = listas.get(grama);
+            if (lista != null) {
+                lista.quitar(id);
+                if (lista.tamano == 0) {
+                    listas.remove(grama);
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtiene los n-gramas distintos de un texto normalizado.
+     *
+     * @param texto    El texto normalizado (palabras separadas por espacios).
+     * @param consulta true si es una consulta: las palabras no se rellenan por
+     *                 detrás (pueden ser parte de una palabra mayor) y las más
+     *                 cortas que n solo se rellenan por delante.
+     * @return Los n-gramas, en orden de aparición.
+     */
+    private Set<String> gramas(String texto, boolean consulta) {
+        Set<String> gramas = new LinkedHashSet<>();
+        if (texto.isEmpty()) {
+            return gramas;
+        }
+        for (String palabra : texto.split(" ")) {
+            String rellena;
+            if (!consulta) {
+                rellena = " " + palabra + " ";
+            } else if (palabra.length() >= n) {
+                rellena = palabra;
+            } else {
+                rellena = " " + palabra;
+            }
+            for (int i = 0; i + n <= rellena.length(); i++) {
+                gramas.add(rellena.substring(i, i + n));
+            }
+        }
+        return gramas;
+    }
+
+    /**
+     * Normaliza un texto: minúsculas, sin tildes y con las palabras separadas
+     * por un espacio.
+     *
+     * @param texto El texto (null se trata como vacío).
+     * @return El texto normalizado.
+     */
+    private static String normalizar(String texto) {
+        return String.join(" ", IndicePrefijos.palabras(texto));
+    }
+
+    /**
+     * Registro candidato de una búsqueda.
+     */
+    private static class Candidato {
+
+        /** ID del registro. */
+        private final int id;
+
+        /** n-gramas de la consulta que tiene. */
+        private final int coincidencias;
+
+        /** Indica si su texto contiene la consulta tal cual. */
+        private final boolean contieneConsulta;
+
+        /** Longitud de su texto normalizado. */
+        private final int longitud;
+
+        /**
+         * Crea un candidato.
+         *
+         * @param id               ID del registro.
+         * @param coincidencias    n-gramas de la consulta que tiene.
+         * @param contieneConsulta Si contiene la consulta tal cual.
+         * @param longitud         Longitud de su texto.
+         */
+        private Candidato(int id, int coincidencias, boolean contieneConsulta, int longitud) {
+            this.id = id;
+            this.coincidencias = coincidencias;
+            this.contieneConsulta = contieneConsulta;
+            this.longitud = longitud;
+        }
+    }
+
+    /**
+     * Lista ordenada de IDs sobre un {@code int[]} que crece al doble.
+     */
+    private static class ListaIds {
+
+        /** IDs en orden ascendente; solo son válidos los tamano primeros. */
+        private int[] ids = new int[4];
+
+        /** Número de IDs. */
+        private int tamano;
+
+        /**
+         * Añade un ID mayor que todos los de la lista.
+         *
+         * @param id El ID.
+         */
+        private void anexar(int id) {
+            if (tamano == ids.length) {
+                ids = Arrays.copyOf(ids, tamano * 2);
+            }
+            ids[tamano++] = id;
+        }
+
+        /**
+         * Añade al final los IDs de otra lista, todos mayores que los de esta.
+         *
+         * @param otra La otra lista.
+         */
+        private void anexar(ListaIds otra) {
+            if (tamano + otra.tamano > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(tamano + otra.tamano, tamano * 2));
+            }
+            System.arraycopy(otra.ids, 0, ids, tamano, otra.tamano);
+            tamano += otra.tamano;
+        }
+
+        /**
+         * Inserta un ID en su posición, si no está ya.
+         *
+         * @param id El ID.
+         */
+        private void insertar(int id) {
+            int posicion = Arrays.binarySearch(ids, 0, tamano, id);
+            if (posicion >= 0) {
+                return;
+            }
+            posicion = -posicion - 1;
+            if (tamano == ids.length) {
+                ids = Arrays.copyOf(ids, tamano * 2);
+            }
+            System.arraycopy(ids, posicion, ids, posicion + 1, tamano - posicion);
+            ids[posicion] = id;
+            tamano++;
+        }
+
+        /**
+         * Quita un ID, si está.
+         *
+         * @param id El ID.
+         */
+        private void quitar(int id) {
+            int posicion = Arrays.binarySearch(ids, 0, tamano, id);
+            if (posicion >= 0) {
+                System.arraycopy(ids, posicion + 1, ids, posicion, tamano - posicion - 1);
+                tamano--;
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.inventario.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índice en memoria para buscar registros por el principio de las palabras de
+ * sus textos (nombre, email...), sin distinguir mayúsculas ni tildes.
+ * <p>
+ * Cada palabra de cada registro se guarda como {@code palabra\0id} en un mapa
+ * ordenado, así que buscar un prefijo es recorrer un tramo del mapa y se
+ * detiene en cuanto hay bastantes resultados. Las palabras que coinciden
+ * exactamente con la búsqueda salen antes que las que solo empiezan por ella.
+ * <p>
+ * Las búsquedas son seguras con varios hilos y no bloquean; las
+ * actualizaciones se hacen de una en una.
+ */
+public class IndicePrefijos {
+
+    /**
+     * Separa la palabra del ID en las claves; es menor que cualquier letra, así
+     * que "mesa" se ordena antes que "mesas".
+     */
+    private static final char SEPARADOR = '\0';
+
+    /**
+     * Entradas {@code palabra\0id} con el ID de su registro.
+     */
+    private final ConcurrentSkipListMap<String, Integer> entradas = new ConcurrentSkipListMap<>();
+
+    /**
+     * Palabras indexadas de cada registro, para quitarlas al actualizarlo.
+     */
+    private final ConcurrentHashMap<Integer, String[]> palabrasPorId = new ConcurrentHashMap<>();
+
+    /**
+     * Indica si ya se ha cargado el contenido inicial.
+     */
+    private volatile boolean cargado;
+
+    /**
+     * Indexa un registro, sustituyendo lo que hubiera de él.
+     *
+     * @param id     El ID del registro.
+     * @param textos Los textos del registro (los null se ignoran).
+     */
+    public synchronized void indexar(int id, String... textos) {
+        String[] palabras = palabras(textos);
+        String[] anteriores = palabrasPorId.put(id, palabras);
+        if (anteriores != null) {
+            for (String palabra : anteriores) {
+                entradas.remove(clave(palabra, id));
+            }
+        }
+        for (String palabra : palabras) {
+            entradas.put(clave(palabra, id), id);
+        }
+    }
+
+    /**
+     * Quita un registro del índice.
+     *
+     * @param id El ID del registro.
+     */
+    public synchronized void quitar(int id) {
+        String[] anteriores = palabrasPorId.remove(id);
+        if (anteriores != null) {
+            for (String palabra : anteriores) {
+                entradas.remove(clave(palabra, id));
+            }
+        }
+    }
+
+    /**
+     * Vacía el índice y lo marca como no cargado.
+     */
+    public synchronized void vaciar() {
+        cargado = false;
+        entradas.clear();
+        palabrasPorId.clear();
+    }
+
+    /**
+     * Marca el índice como cargado, tras indexar todos los registros.
+     */
+    public void marcarCargado() {
+        cargado = true;
+    }
+
+    /**
+     * Indica si el índice ya se ha cargado.
+     *
+     * @return true si se puede consultar.
+     */
+    public boolean estaCargado() {
+        return cargado;
+    }
+
+    /**
+     * Busca los registros que tienen, para cada palabra de la consulta, alguna
+     * palabra que empieza por ella. Por ejemplo, "caf mol" encuentra "Café
+     * molido".
+     *
+     * @param consulta El texto buscado.
+     * @param maximo   Número máximo de resultados.
+     * @return Los IDs encontrados, los de coincidencia exacta primero.
+     */
+    public List<Integer> buscar(String consulta, int maximo) {
+        String[] buscadas = palabras(consulta);
+        if (buscadas.length == 0 || maximo <= 0) {
+            return List.of();
+        }
+
+        // Se recorre el tramo de la palabra más larga, que es la más selectiva
+        String guia = buscadas[0];
+        for (String palabra : buscadas) {
+            if (palabra.length() > guia.length()) {
+                guia = palabra;
+            }
+        }
+
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (Map.Entry<String, Integer> entrada : entradas.subMap(guia, guia + Character.MAX_VALUE).entrySet()) {
+            int id = entrada.getValue();
+            if (!ids.contains(id) && coincideTodo(palabrasPorId.get(id), buscadas)) {
+                ids.add(id);
+                if (ids.size() >= maximo) {
+                    break;
+                }
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    /**
+     * Obtiene el número de registros indexados.
+     *
+     * @return El número de registros.
+     */
+    public int tamano() {
+        return palabrasPorId.size();
+    }
+
+    /**
+     * Separa unos textos en palabras en minúsculas y sin tildes.
+     *
+     * @param textos Los textos (los null se ignoran).
+     * @return Las palabras distintas, en orden de aparición.
+     */
+    public static String[] palabras(String... textos) {
+        Set<String> palabras = new LinkedHashSet<>();
+        for (String texto : textos) {
+            if (texto == null) {
+                continue;
+            }
+            String normalizado = Normalizer.normalize(texto, Normalizer.Form.NFD)
+                    .replaceAll("\\p{M}", "")
+                    .toLowerCase(Locale.ROOT);
+            for (String palabra : normalizado.split("[^\\p{Alnum}]+")) {
+                if (!palabra.isEmpty()) {
+                    palabras.add(palabra);
+                }
+            }
+        }
+        return palabras.toArray(new String[0]);
+    }
+
+    /**
+     * Comprueba que cada palabra buscada es el principio de alguna palabra del
+     * registro.
+     *
+     * @param palabras Las palabras del registro (null si se acaba de quitar).
+     * @param buscadas Las palabras buscadas.
+     * @return true si coinciden todas.
+     */
+    private static boolean coincideTodo(String[] palabras, String[] buscadas) {
+        if (palabras == null) {
+            return false;
+        }
+        for (String buscada : buscadas) {
+            boolean encontrada = false;
+            for (String palabra : palabras) {
+                if (palabra.startsWith(buscada)) {
+                    encontrada = true;
+                    break;
+                }
+            }
+            if (!encontrada) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Construye la clave de una palabra de un registro.
+     *
+     * @param palabra La palabra.
+     * @param id      El ID del registro.
+     * @return La clave {@code palabra\0id}.
+     */
+    private static String clave(String palabra, int id) {
+        return palabra + SEPARADOR + id;
+    }
+}
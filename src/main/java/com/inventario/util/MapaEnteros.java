@@ -0,0 +1,167 @@
+package com.inventario.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Mapa de claves enteras con direccionamiento abierto, sin objetos
+ * {@code Integer} ni nodos por entrada.
+ * <p>
+ * Pensado para agrupar resultados de consultas por ID en una sola pasada. No
+ * admite valores null ni borrados, y no es seguro para varios hilos.
+ *
+ * @param <V> Tipo del valor.
+ */
+public class MapaEnteros<V> {
+
+    /**
+     * Ocupación máxima de la tabla antes de duplicarla.
+     */
+    private static final float OCUPACION_MAXIMA = 0.5f;
+
+    /**
+     * Claves de cada posición.
+     */
+    private int[] claves;
+
+    /**
+     * Valores de cada posición (null si está libre).
+     */
+    private Object[] valores;
+
+    /**
+     * Número de entradas.
+     */
+    private int tamano;
+
+    /**
+     * Crea un mapa vacío.
+     *
+     * @param esperados Número de entradas previsto.
+     */
+    public MapaEnteros(int esperados) {
+        int minimo = Math.max(8, (int) (Math.max(0, esperados) / OCUPACION_MAXIMA));
+        int capacidad = Integer.highestOneBit(minimo - 1) << 1;
+        this.claves = new int[capacidad];
+        this.valores = new Object[capacidad];
+    }
+
+    /**
+     * Obtiene el valor de una clave.
+     *
+     * @param clave La clave.
+     * @return El valor, o null si la clave no está.
+     */
+    @SuppressWarnings("unchecked")
+    public V obtener(int clave) {
+        return (V) valores[posicion(clave)];
+    }
+
+    /**
+     * Guarda el valor de una clave, sustituyendo el anterior.
+     *
+     * @param clave La clave.
+     * @param valor El valor (no null).
+     */
+    public void guardar(int clave, V valor) {
+        if (valor == null) {
+            throw new IllegalArgumentException("MapaEnteros no admite valores null");
+        }
+        int i = posicion(clave);
+        if (valores[i] == null) {
+            claves[i] = clave;
+            tamano++;
+        }
+        valores[i] = valor;
+        if (tamano > claves.length * OCUPACION_MAXIMA) {
+            crecer();
+        }
+    }
+
+    /**
+     * Obtiene el valor de una clave, creándolo si la clave no está.
+     *
+     * @param clave La clave.
+     * @param crear Crea el valor a partir de la clave.
+     * @return El valor existente o el recién creado.
+     */
+    public V obtenerOCrear(int clave, IntFunction<V> crear) {
+        V valor = obtener(clave);
+        if (valor == null) {
+            valor = crear.apply(clave);
+            guardar(clave, valor);
+        }
+        return valor;
+    }
+
+    /**
+     * Obtiene el número de entradas.
+     *
+     * @return El número de entradas.
+     */
+    public int tamano() {
+        return tamano;
+    }
+
+    /**
+     * Obtiene los valores, sin un orden definido.
+     *
+     * @return Una lista nueva con los valores.
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> valores() {
+        List<V> lista = new ArrayList<>(tamano);
+        for (Object valor : valores) {
+            if (valor != null) {
+                lista.add((V) valor);
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * Busca la posición de una clave, o la posición libre donde iría.
+     *
+     * @param clave La clave.
+     * @return La posición en la tabla.
+     */
+    private int posicion(int clave) {
+        int mascara = claves.length - 1;
+        int i = mezclar(clave) & mascara;
+        while (valores[i] != null && claves[i] != clave) {
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    /**
+     * Duplica la tabla y recoloca las entradas.
+     */
+    private void crecer() {
+        int[] clavesAntiguas = claves;
+        Object[] valoresAntiguos = valores;
+        claves = new int[clavesAntiguas.length * 2];
+        valores = new Object[valoresAntiguos.length * 2];
+
+        for (int i = 0; i < clavesAntiguas.length; i++) {
+            if (valoresAntiguos[i] != null) {
+                int j = posicion(clavesAntiguas[i]);
+                claves[j] = clavesAntiguas[i];
+                valores[j] = valoresAntiguos[i];
+            }
+        }
+    }
+
+    /**
+     * Reparte los bits de la clave, para que IDs consecutivos no se agrupen en
+     * la tabla.
+     *
+     * @param clave La clave.
+     * @return La clave mezclada.
+     */
+    private static int mezclar(int clave) {
+        int h = clave * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,5 +1,9 @@
 package com.inventario.util;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
 import java.util.Scanner;
 
 /**
@@ -7,6 +11,12 @@ import java.util.Scanner;
  */
 public class Util {
 
+    /**
+     * Formato de las fechas que introduce el usuario.
+     */
+    public static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("dd/MM/uuuu")
+            .withResolverStyle(ResolverStyle.STRICT);
+
     /**
      * Pide al usuario que ingrese una opción (1: Sí, 2: No).
      * 
@@ -222,4 +232,23 @@ public class Util {
         } while (numero < min || numero > max);
         return numero;
     }
+
+    /**
+     * Pide al usuario que ingrese una fecha con el formato dd/mm/aaaa.
+     * 
+     * @param scanner Scanner para leer la entrada del usuario.
+     * @param mensaje Mensaje a mostrar al usuario.
+     * @return Fecha ingresada por el usuario.
+     */
+    public static LocalDate pedirFecha(Scanner scanner, String mensaje) {
+        System.out.println(mensaje + " (dd/mm/aaaa):");
+        while (true) {
+            String texto = scanner.nextLine().trim();
+            try {
+                return LocalDate.parse(texto, FORMATO_FECHA);
+            } catch (DateTimeParseException e) {
+                System.out.println("Fecha inválida. Usa el formato dd/mm/aaaa, por ejemplo 31/01/2025.");
+            }
+        }
+    }
 }
@@ -0,0 +1,169 @@
+package com.inventario.ventas;
+
+import java.util.List;
+
+/**
+ * Detalle completo de una venta: sus líneas con el nombre del producto, el
+ * total guardado en la cabecera y la suma de las líneas para comprobarlo.
+ * <p>
+ * Es inmutable, así que se puede guardar y reutilizar.
+ */
+public class FichaVenta {
+    /** Identificador de la venta */
+    private final int idVenta;
+
+    /** Líneas de la venta */
+    private final List<Linea> lineas;
+
+    /** Total de la venta */
+    private final double total;
+
+    /** Suma de los subtotales de las líneas */
+    private final double sumaLineas;
+
+    /**
+     * Constructor de la clase.
+     * 
+     * @param idVenta    Id de la venta.
+     * @param lineas     Líneas de la venta.
+     * @param total      Total guardado, o la suma de las líneas si no lo hay.
+     * @param sumaLineas Suma de los subtotales.
+     */
+    public FichaVenta(int idVenta, List<Linea> lineas, double total, double sumaLineas) {
+        this.idVenta = idVenta;
+        this.lineas = List.copyOf(lineas);
+        this.total = total;
+        this.sumaLineas = sumaLineas;
+    }
+
+    /**
+     * Obtiene el identificador de la venta.
+     * 
+     * @return El identificador de la venta.
+     */
+    public int getIdVenta() {
+        return idVenta;
+    }
+
+    /**
+     * Obtiene las líneas de la venta.
+     * 
+     * @return Las líneas, en una lista no modificable.
+     */
+    public List<Linea> getLineas() {
+        return lineas;
+    }
+
+    /**
+     * Obtiene el total de la venta.
+     * 
+     * @return El total guardado, o la suma de las líneas si no lo hay.
+     */
+    public double getTotal() {
+        return total;
+    }
+
+    /**
+     * Obtiene la suma de los subtotales de las líneas.
+     * 
+     * @return La suma de las líneas.
+     */
+    public double getSumaLineas() {
+        return sumaLineas;
+    }
+
+    /**
+     * Indica si el total coincide, al céntimo, con la suma de las líneas.
+     * 
+     * @return true si coinciden.
+     */
+    public boolean cuadraConLineas() {
+        return Math.round(total * 100) == Math.round(sumaLineas * 100);
+    }
+
+    /**
+     * Indica si la venta no tiene líneas (o no existe).
+     * 
+     * @return true si no hay líneas.
+     */
+    public boolean estaVacia() {
+        return lineas.isEmpty();
+    }
+
+    /**
+     * Línea de la ficha de una venta.
+     */
+    public static class Linea {
+        /** Identificador del producto */
+        private final int idProducto;
+
+        /** Nombre del producto */
+        private final String nombreProducto;
+
+        /** Unidades vendidas */
+        private final int cantidad;
+
+        /** Precio unitario de la venta */
+        private final double precioUnitario;
+
+        /**
+         * Constructor de la clase.
+         * 
+         * @param idProducto     Id del producto.
+         * @param nombreProducto Nombre del producto.
+         * @param cantidad       Unidades vendidas.
+         * @param precioUnitario Precio unitario de la venta.
+         */
+        public Linea(int idProducto, String nombreProducto, int cantidad, double precioUnitario) {
+            this.idProducto = idProducto;
+            this.nombreProducto = nombreProducto;
+            this.cantidad = cantidad;
+            this.precioUnitario = precioUnitario;
+        }
+
+        /**
+         * Obtiene el identificador del producto.
+         * 
+         * @return El identificador del producto.
+         */
+        public int getIdProducto() {
+            return idProducto;
+        }
+
+        /**
+         * Obtiene el nombre del producto.
+         * 
+         * @return El nombre del producto.
+         */
+        public String getNombreProducto() {
+            return nombreProducto;
+        }
+
+        /**
+         * Obtiene las unidades vendidas.
+         * 
+         * @return La cantidad.
+         */
+        public int getCantidad() {
+            return cantidad;
+        }
+
+        /**
+         * Obtiene el precio unitario de la venta.
+         * 
+         * @return El precio unitario.
+         */
+        public double getPrecioUnitario() {
+            return precioUnitario;
+        }
+
+        /**
+         * Obtiene el subtotal de la línea.
+         * 
+         * @return Cantidad por precio unitario.
+         */
+        public double getSubtotal() {
+            return cantidad * precioUnitario;
+        }
+    }
+}
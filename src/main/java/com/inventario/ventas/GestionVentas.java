@@ -1,30 +1,35 @@
 package com.inventario.ventas;
 
-import java.sql.Connection;
 import java.sql.SQLException;
-import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 import com.inventario.bbdd.ConexionBBDD;
+import com.inventario.bbdd.GestionBBDD;
 import com.inventario.clientes.Cliente;
 import com.inventario.clientes.ClientesBBDD;
-import com.inventario.clientes.GestionDeClientes;
 import com.inventario.excepciones.DatoInvalidoException;
-import com.inventario.productos.GestionDeProductos;
 import com.inventario.productos.Producto;
 import com.inventario.productos.ProductosBBDD;
+import com.inventario.productos.ReservasStock;
 import com.inventario.util.Util;
 
 /** Clase para gestionar las ventas */
 public class GestionVentas {
 
+    /** Formato de la fecha y hora de las ventas en los listados. */
+    private static final DateTimeFormatter FORMATO_FECHA_HORA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
     /**
      * Inserta un nuevo cliente a partir de la venta.
      * 
      * @param scanner Scanner para la entrada del usuario.
-     * @return true si el cliente se ha insertado correctamente.
+     * @return true si el cliente se ha insertado correctamente; false si ya
+     *         existe un cliente con ese email.
      * @throws SQLException          Si ocurre un error al interactuar con la base
      *                               de datos.
      * @throws DatoInvalidoException Si se introduce un dato inválido.
@@ -38,6 +43,10 @@ public class GestionVentas {
         double dinero = Util.pedirDecimalMinimo(scanner, "Dinero del cliente:", 0);
 
         Cliente nuevo = new Cliente(nombre, email, telefono, dinero);
+        if (ClientesBBDD.existeEmail(email)) {
+            System.out.println("Ya existe un cliente con ese email.");
+            return false;
+        }
         ClientesBBDD.insertarCliente(nuevo);
         System.out.println("Cliente creado correctamente.");
         return true;
@@ -53,13 +62,162 @@ public class GestionVentas {
         System.out.println("\n--- DETALLES DE VENTA ---");
         int idVenta = Util.pedirNumeroMinimo(scanner, "Introduce el ID de la venta:", 1);
 
-        boolean existenDetalles = VentasBBDD.imprimirDetallesVenta(idVenta);
+        FichaVenta ficha = VentasBBDD.obtenerFichaVenta(idVenta);
+        VentasBBDD.imprimirLineas(ficha);
 
-        if (existenDetalles) {
-            double total = VentasBBDD.calcularTotalVenta(idVenta);
+        if (!ficha.estaVacia()) {
             System.out.println("---------------------------------------------------------------");
-            System.out.printf("TOTAL VENTA: %.2f\n", total);
+            System.out.printf("TOTAL VENTA: %.2f\n", ficha.getTotal());
+            if (!ficha.cuadraConLineas()) {
+                System.err.printf("Aviso: la suma de las líneas es %.2f; revise los totales de ventas.\n",
+                        ficha.getSumaLineas());
+            }
+        }
+    }
+
+    /**
+     * Rellena el total de las ventas que no lo tienen guardado y comprueba que
+     * todos coinciden con la suma de sus líneas.
+     * 
+     * @param scanner El objeto Scanner para leer la entrada del usuario.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static void comprobarTotales(Scanner scanner) throws SQLException {
+        System.out.println("\n--- TOTALES DE VENTAS ---");
+
+        int rellenadas = VentasBBDD.rellenarTotales();
+        System.out.println("Ventas sin total rellenadas: " + rellenadas);
+
+        List<Integer> distintas = VentasBBDD.verificarTotales(false);
+        if (distintas.isEmpty()) {
+            System.out.println("Todos los totales guardados coinciden con sus líneas.");
+        } else {
+            System.out.println("Ventas con el total distinto de la suma de sus líneas: " + distintas);
+            int corregir = Util.pedirSiNO(scanner, "¿Corregir estos totales?");
+            if (corregir == 1) {
+                System.out.println("Totales corregidos: " + VentasBBDD.verificarTotales(true).size());
+            }
+        }
+    }
+
+    /**
+     * Lista el resumen de ventas por páginas, de la más reciente a la más
+     * antigua.
+     * 
+     * @param scanner El objeto Scanner para leer la entrada del usuario.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static void listarResumenPorPaginas(Scanner scanner) throws SQLException {
+        System.out.println("\n--- LISTADO DE VENTAS (RESUMEN) ---");
+        int tamano = GestionBBDD.tamanoPagina();
+
+        GestionBBDD.navegarPaginas(scanner,
+                String.format("%-6s | %-10s | %10s | %s", "ID VTA", "ID CLI", "TOTAL", "CLIENTE"),
+                (referencia, haciaAdelante) -> VentasBBDD.obtenerPaginaResumen(referencia, haciaAdelante, tamano),
+                v -> String.format("%-6d | %-10d | %10.2f | %s", v.getIdVenta(), v.getIdCliente(), v.getTotal(),
+                        v.getNombreCliente()));
+    }
+
+    /**
+     * Pide un intervalo de días al usuario.
+     * 
+     * @param scanner El objeto Scanner para leer la entrada del usuario.
+     * @return El primer y el último día del intervalo (incluidos).
+     */
+    private static LocalDate[] pedirIntervalo(Scanner scanner) {
+        LocalDate desde = Util.pedirFecha(scanner, "Desde el día");
+        LocalDate hasta = Util.pedirFecha(scanner, "Hasta el día");
+        while (hasta.isBefore(desde)) {
+            System.out.println("La fecha final no puede ser anterior a la inicial.");
+            hasta = Util.pedirFecha(scanner, "Hasta el día");
+        }
+        return new LocalDate[] { desde, hasta };
+    }
+
+    /**
+     * Lista las ventas registradas entre dos días.
+     * 
+     * @param scanner El objeto Scanner para leer la entrada del usuario.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static void listarVentasPorFechas(Scanner scanner) throws SQLException {
+        System.out.println("\n--- VENTAS ENTRE FECHAS ---");
+        LocalDate[] intervalo = pedirIntervalo(scanner);
+
+        List<ResumenVenta> ventas = VentasBBDD.obtenerResumenPorRango(intervalo[0].atStartOfDay(),
+                intervalo[1].plusDays(1).atStartOfDay());
+        if (ventas.isEmpty()) {
+            System.out.println("No hay ventas en esas fechas.");
+            return;
+        }
+
+        System.out.printf("%-16s | %-6s | %-10s | %10s | %s\n", "FECHA", "ID VTA", "ID CLI", "TOTAL", "CLIENTE");
+        double total = 0.0;
+        for (ResumenVenta v : ventas) {
+            System.out.printf("%-16s | %-6d | %-10d | %10.2f | %s\n",
+                    v.getFecha().format(FORMATO_FECHA_HORA), v.getIdVenta(), v.getIdCliente(), v.getTotal(),
+                    v.getNombreCliente());
+            total += v.getTotal();
         }
+        System.out.printf("%d ventas, total %.2f\n", ventas.size(), total);
+    }
+
+    /**
+     * Muestra los ingresos de cada día de un intervalo.
+     * 
+     * @param scanner El objeto Scanner para leer la entrada del usuario.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static void listarIngresosPorDia(Scanner scanner) throws SQLException {
+        System.out.println("\n--- INGRESOS POR DÍA ---");
+        LocalDate[] intervalo = pedirIntervalo(scanner);
+
+        Map<LocalDate, Double> ingresos = VentasBBDD.obtenerIngresosPorDia(intervalo[0], intervalo[1]);
+        if (ingresos.isEmpty()) {
+            System.out.println("No hay ventas en esas fechas.");
+            return;
+        }
+
+        System.out.printf("%-10s | %s\n", "DÍA", "INGRESOS");
+        double total = 0.0;
+        for (Map.Entry<LocalDate, Double> dia : ingresos.entrySet()) {
+            System.out.printf("%-10s | %10.2f\n", dia.getKey().format(Util.FORMATO_FECHA), dia.getValue());
+            total += dia.getValue();
+        }
+        System.out.printf("TOTAL      | %10.2f\n", total);
+    }
+
+    /**
+     * Lista las ventas de un rango de IDs con todas sus líneas, cargadas con
+     * {@link VentasBBDD#cargarVentas(int, int)}.
+     * 
+     * @param scanner El objeto Scanner para leer la entrada del usuario.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static void listarVentasPorIds(Scanner scanner) throws SQLException {
+        System.out.println("\n--- VENTAS CON SUS LÍNEAS ---");
+        int desde = Util.pedirNumeroMinimo(scanner, "Desde el ID de venta:", 1);
+        int hasta = Util.pedirNumeroMinimo(scanner, "Hasta el ID de venta:", desde);
+
+        List<Venta> ventas = VentasBBDD.cargarVentas(desde, hasta);
+        if (ventas.isEmpty()) {
+            System.out.println("No hay ventas en ese rango.");
+            return;
+        }
+
+        double total = 0.0;
+        for (Venta v : ventas) {
+            String fecha = v.getFecha() != null ? v.getFecha().format(FORMATO_FECHA_HORA) : "-";
+            System.out.printf("\nVenta %d | Cliente %d | %s | Total %.2f\n", v.getId(), v.getIdCliente(), fecha,
+                    v.getTotal());
+            System.out.printf("  %-10s | %-10s | %-10s | %s\n", "ID PROD", "CANTIDAD", "PRECIO U.", "SUBTOTAL");
+            for (DetalleVenta d : v.getDetalles()) {
+                System.out.printf("  %-10d | %-10d | %-10.2f | %.2f\n", d.getIdProducto(), d.getCantidad(),
+                        d.getPrecioUnitario(), d.getCantidad() * d.getPrecioUnitario());
+            }
+            total += v.getTotal();
+        }
+        System.out.printf("\n%d ventas, total %.2f\n", ventas.size(), total);
     }
 
     public static void menuConsultasVentas(Scanner scanner) {
@@ -69,16 +227,24 @@ public class GestionVentas {
             System.out.println("\n====== CONSULTAS DE VENTAS ======");
             System.out.println("1. Listar todas las ventas (Resumen)");
             System.out.println("2. Consultar detalles de una venta por ID");
+            System.out.println("3. Rellenar y verificar los totales guardados");
+            System.out.println("4. Listar las ventas entre dos fechas");
+            System.out.println("5. Ingresos por día");
+            System.out.println("6. Listar las ventas de un rango de IDs con sus líneas");
             System.out.println("0. Volver al menú principal");
             System.out.println("=================================");
             System.out.print("Selecciona una opción: ");
 
-            opcion = Util.pedirNumeroConRango(scanner, "", 0, 2);
+            opcion = Util.pedirNumeroConRango(scanner, "", 0, 6);
 
             try {
                 switch (opcion) {
-                    case 1 -> VentasBBDD.imprimirResumenVentas();
+                    case 1 -> listarResumenPorPaginas(scanner);
                     case 2 -> consultarDetallesConTotal(scanner);
+                    case 3 -> comprobarTotales(scanner);
+                    case 4 -> listarVentasPorFechas(scanner);
+                    case 5 -> listarIngresosPorDia(scanner);
+                    case 6 -> listarVentasPorIds(scanner);
                     case 0 -> System.out.println("Volviendo al menú principal...");
                     default -> System.out.println("Opción no válida.");
                 }
@@ -92,53 +258,50 @@ public class GestionVentas {
     }
 
     /**
-     * Gestiona la creación de cabecera, detalles y cálculo del total (usando la
-     * Función).
+     * Sesión de ventas interactiva. Cada venta se prepara en memoria, sin
+     * bloquear nada en la base de datos mientras el usuario escribe, y al
+     * aceptarla se confirma en una transacción corta con
+     * {@link ServicioVentas#registrarVenta}.
+     * <p>
+     * Cancelar todo el proceso anula, con transacciones de compensación, las
+     * ventas ya confirmadas en la sesión.
      * 
      * @param scanner Scanner para la entrada del usuario.
      */
     private static void guardarVenta(Scanner scanner) {
         System.out.println("\n--- INICIANDO SESIÓN DE VENTAS ---");
-        boolean finalizado = false;
-
-        try (Connection con = ConexionBBDD.obtenerConexion()) {
-            con.setAutoCommit(false);
-
-            boolean continuarVendiendo = true;
+        List<Recibo> confirmadas = new ArrayList<>();
+        boolean continuarVendiendo = true;
 
+        try {
             do {
                 System.out.println("\n--- NUEVA VENTA ---");
 
-                Savepoint spInicioVenta = con.setSavepoint("InicioVenta");
-
+                List<ReservasStock.Reserva> reservas = new ArrayList<>();
                 try {
                     int idCliente = seleccionarCliente(scanner);
-                    List<DetalleVenta> detalles = seleccionarProductos(scanner);
+                    List<DetalleVenta> detalles = seleccionarProductos(scanner, reservas);
 
                     if (detalles.isEmpty()) {
                         System.out.println("Venta vacía. Cancelando esta venta...");
-                        con.rollback(spInicioVenta);
                     } else {
-                        int idVenta = VentasBBDD.insertarCabeceraVenta(con, idCliente);
-                        double total = VentasBBDD.procesarDetalles(con, idVenta, detalles);
+                        double total = ServicioVentas.calcularTotal(detalles);
 
                         System.out.printf("\n>> TOTAL A PAGAR: %.2f €\n", total);
                         int confirma = Util.pedirSiNO(scanner, "¿El cliente acepta la compra?");
 
                         if (confirma == 2) {
-                            con.rollback(spInicioVenta);
-                            System.out.println("Venta rechazada. Deshaciendo cambios de esta venta.");
+                            System.out.println("Venta rechazada. No se ha guardado nada de esta venta.");
                         } else {
-                            VentasBBDD.cobrarCliente(con, idCliente, total);
-                            System.out.println("Venta aceptada y saldo descontado.");
+                            Recibo recibo = ServicioVentas.registrarVenta(idCliente, detalles);
+                            confirmadas.add(recibo);
+                            System.out.println("Venta " + recibo.getIdVenta() + " aceptada y saldo descontado.");
 
                             int cancelarTodo = Util.pedirSiNO(scanner,
                                     "¿Desea CANCELAR TODO el proceso de ventas acumulado hasta ahora?");
 
                             if (cancelarTodo == 1) {
-                                con.rollback();
-                                System.out.println(
-                                        "PROCESO CANCELADO. Se han deshecho TODAS las ventas de la sesión.");
+                                anularVentas(confirmadas);
                                 continuarVendiendo = false;
                             }
                         }
@@ -149,89 +312,198 @@ public class GestionVentas {
                         int masVentas = Util.pedirSiNO(scanner, "¿Desea registrar otra venta en este lote?");
                         if (masVentas == 2) {
                             continuarVendiendo = false;
-                            finalizado = true;
                         }
                     }
 
                 } catch (SQLException ex) {
                     System.err.println("Error en la venta actual: " + ex.getMessage());
-                    System.err.println("Revertiendo esta venta...");
-                    con.rollback(spInicioVenta); // Rollback solo de la venta actual fallida
+                    System.err.println("No se ha guardado nada de esta venta.");
 
                     int retry = Util.pedirSiNO(scanner, "¿Intentar otra venta?");
                     if (retry == 2)
                         continuarVendiendo = false;
+                } finally {
+                    liberarReservas(reservas);
                 }
             } while (continuarVendiendo);
 
-            if (!con.getAutoCommit() && finalizado) { // Si seguimos en transacción
-                con.commit();
-                System.out.println("\n=== SESIÓN FINALIZADA ===");
-            }
-
-            con.setAutoCommit(true);
+            System.out.println("\n=== SESIÓN FINALIZADA (" + confirmadas.size() + " ventas confirmadas) ===");
 
-        } catch (SQLException e) {
-            System.err.println("Error CRÍTICO de conexión: " + e.getMessage());
         } catch (Exception e) {
             System.err.println("Error inesperado: " + e.getMessage());
         }
     }
 
     /**
-     * Selecciona un cliente existente.
+     * Libera las reservas de stock de un carrito, tanto si la venta se ha
+     * confirmado como si no.
+     * 
+     * @param reservas Las reservas del carrito.
+     */
+    private static void liberarReservas(List<ReservasStock.Reserva> reservas) {
+        for (ReservasStock.Reserva reserva : reservas) {
+            try {
+                ReservasStock.liberar(reserva);
+            } catch (SQLException e) {
+                System.err.println("Error al liberar la reserva de stock " + reserva.getId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Anula las ventas confirmadas en la sesión, de la más reciente a la más
+     * antigua. Si alguna no se puede anular se informa y se sigue con las demás.
+     * 
+     * @param confirmadas Recibos de las ventas confirmadas; se vacía al terminar.
+     */
+    private static void anularVentas(List<Recibo> confirmadas) {
+        int anuladas = 0;
+        for (int i = confirmadas.size() - 1; i >= 0; i--) {
+            Recibo recibo = confirmadas.get(i);
+            try {
+                if (ServicioVentas.anularVenta(recibo)) {
+                    anuladas++;
+                }
+            } catch (SQLException e) {
+                System.err.println("No se pudo anular la venta " + recibo.getIdVenta() + ": " + e.getMessage());
+            }
+        }
+        System.out.println("PROCESO CANCELADO. Se han anulado " + anuladas + " de " + confirmadas.size()
+                + " ventas de la sesión.");
+        confirmadas.clear();
+    }
+
+    /**
+     * Selecciona un cliente existente por su ID o buscándolo por el principio
+     * de su nombre o su email. Cada búsqueda muestra como mucho
+     * {@code busqueda.maximo} clientes, sacados de los índices en memoria.
      * 
      * @param scanner Scanner para la entrada del usuario.
      * @return ID del cliente seleccionado.
      * @throws SQLException Si ocurre un error de base de datos.
      */
     private static int seleccionarCliente(Scanner scanner) throws SQLException {
-        int idCliente;
-        boolean valido = false;
+        int maximo = maximoResultados();
 
-        do {
-            GestionDeClientes.listarClientes();
-            idCliente = Util.pedirNumeroMinimo(scanner, "ID Cliente:", 1);
+        while (true) {
+            String texto = Util.pedirTexto(scanner, "Cliente (ID, o principio del nombre o del email):").trim();
 
-            if (ClientesBBDD.existeCliente(idCliente)) {
-                valido = true;
-            } else {
+            if (texto.matches("\\d{1,9}")) {
+                int idCliente = Integer.parseInt(texto);
+                if (ClientesBBDD.existeCliente(idCliente)) {
+                    return idCliente;
+                }
                 System.out.println("El cliente no existe. Inténtalo de nuevo.");
+                continue;
             }
-        } while (!valido);
 
-        return idCliente;
+            List<Cliente> encontrados = ClientesBBDD.buscarPorTexto(texto, maximo);
+            if (encontrados.isEmpty()) {
+                System.out.println("Ningún cliente coincide con \"" + texto + "\".");
+            } else if (encontrados.size() == 1) {
+                Cliente cliente = encontrados.get(0);
+                if (Util.pedirSiNOBoolean(scanner, "Cliente " + cliente.getId() + ": " + cliente.getNombre()
+                        + " <" + cliente.getEmail() + ">. ¿Es este?")) {
+                    return cliente.getId();
+                }
+            } else {
+                System.out.printf("%-6s | %-25s | %s\n", "ID", "NOMBRE", "EMAIL");
+                for (Cliente cliente : encontrados) {
+                    System.out.printf("%-6d | %-25s | %s\n", cliente.getId(), cliente.getNombre(), cliente.getEmail());
+                }
+                System.out.println("Escribe el ID del cliente o afina la búsqueda.");
+            }
+        }
     }
 
     /**
-     * Selecciona productos existentes para la venta.
+     * Selecciona un producto por su ID o buscándolo por el principio de las
+     * palabras de su nombre. Cada búsqueda muestra como mucho
+     * {@code busqueda.maximo} productos, sacados del índice de nombres y de la
+     * caché, con las unidades disponibles.
      * 
      * @param scanner Scanner para la entrada del usuario.
+     * @return El producto seleccionado.
+     * @throws SQLException          Si ocurre un error de base de datos.
+     * @throws DatoInvalidoException Si los datos guardados del producto son
+     *                               inválidos.
+     */
+    private static Producto seleccionarProducto(Scanner scanner) throws SQLException, DatoInvalidoException {
+        int maximo = maximoResultados();
+
+        while (true) {
+            String texto = Util.pedirTexto(scanner, "Producto (ID o principio del nombre):").trim();
+
+            if (texto.matches("\\d{1,9}")) {
+                Producto producto = ProductosBBDD.buscarPorId(Integer.parseInt(texto));
+                if (producto != null) {
+                    return producto;
+                }
+                System.out.println("Producto no encontrado.");
+                continue;
+            }
+
+            List<Producto> encontrados = ProductosBBDD.buscarPorNombre(texto, maximo);
+            if (encontrados.isEmpty()) {
+                System.out.println("Ningún producto coincide con \"" + texto + "\".");
+            } else if (encontrados.size() == 1) {
+                Producto producto = encontrados.get(0);
+                if (Util.pedirSiNOBoolean(scanner,
+                        "Producto " + producto.getId() + ": " + producto.getNombre() + ". ¿Es este?")) {
+                    return producto;
+                }
+            } else {
+                System.out.printf("%-6s | %-25s | %10s | %s\n", "ID", "NOMBRE", "PRECIO", "DISPONIBLE");
+                for (Producto producto : encontrados) {
+                    System.out.printf("%-6d | %-25s | %10.2f | %d\n", producto.getId(), producto.getNombre(),
+                            producto.getPrecio(), ReservasStock.disponible(producto));
+                }
+                System.out.println("Escribe el ID del producto o afina la búsqueda.");
+            }
+        }
+    }
+
+    /**
+     * Obtiene el número máximo de resultados de cada búsqueda al seleccionar.
+     * 
+     * @return El valor de {@code busqueda.maximo}.
+     */
+    private static int maximoResultados() {
+        return Math.max(1, ConexionBBDD.getPropiedadEntera("busqueda.maximo", 10));
+    }
+
+    /**
+     * Selecciona productos existentes para la venta, reservando las unidades
+     * elegidas mientras se prepara el carrito. Solo se ofrece el stock que no
+     * está reservado por otros carritos.
+     * 
+     * @param scanner  Scanner para la entrada del usuario.
+     * @param reservas Lista donde se añaden las reservas del carrito.
      * @return Lista de detalles de venta seleccionados.
      * @throws SQLException          Si ocurre un error de base de datos.
      * @throws DatoInvalidoException Si se introduce un dato inválido.
      */
-    private static List<DetalleVenta> seleccionarProductos(Scanner scanner) throws SQLException, DatoInvalidoException {
+    private static List<DetalleVenta> seleccionarProductos(Scanner scanner, List<ReservasStock.Reserva> reservas)
+            throws SQLException, DatoInvalidoException {
         List<DetalleVenta> detalles = new ArrayList<>();
         int opcion = 1;
         do {
-            GestionDeProductos.listarProductos();
-            int idProd = Util.pedirNumeroMinimo(scanner, "ID Producto:", 1);
-
-            List<Producto> prods = ProductosBBDD.buscarPorCampo("id_producto", idProd);
-
-            if (!prods.isEmpty()) {
-                Producto p = prods.get(0);
-                if (p.getStock() > 0) {
-                    int cant = Util.pedirNumeroConRango(scanner, "Cantidad (Max " + p.getStock() + "):", 1,
-                            p.getStock());
+            Producto p = seleccionarProducto(scanner);
+
+            int disponible = ReservasStock.disponible(p);
+            if (disponible > 0) {
+                int cant = Util.pedirNumeroConRango(scanner, "Cantidad (Max " + disponible + "):", 1,
+                        disponible);
+                ReservasStock.Reserva reserva = ReservasStock.reservar(p, cant);
+                if (reserva != null) {
+                    reservas.add(reserva);
                     detalles.add(new DetalleVenta(0, p.getId(), cant, p.getPrecio()));
                     System.out.println("Añadido: " + p.getNombre());
                 } else {
-                    System.out.println("Stock agotado.");
+                    System.out.println("Otra venta acaba de reservar ese stock. Inténtalo de nuevo.");
                 }
             } else {
-                System.out.println("Producto no encontrado.");
+                System.out.println("Stock agotado.");
             }
             opcion = Util.pedirSiNO(scanner, "¿Añadir otro producto?");
         } while (opcion == 1);
@@ -0,0 +1,72 @@
+package com.inventario.ventas;
+
+import java.util.List;
+
+/**
+ * Resultado de una venta registrada: su ID, el cliente, el total cobrado y las
+ * líneas.
+ */
+public class Recibo {
+    /** Identificador de la venta */
+    private final int idVenta;
+
+    /** Identificador del cliente */
+    private final int idCliente;
+
+    /** Total cobrado */
+    private final double total;
+
+    /** Líneas de la venta */
+    private final List<DetalleVenta> detalles;
+
+    /**
+     * Constructor de la clase.
+     * 
+     * @param idVenta   Id de la venta.
+     * @param idCliente Id del cliente.
+     * @param total     Total cobrado.
+     * @param detalles  Líneas de la venta.
+     */
+    public Recibo(int idVenta, int idCliente, double total, List<DetalleVenta> detalles) {
+        this.idVenta = idVenta;
+        this.idCliente = idCliente;
+        this.total = total;
+        this.detalles = List.copyOf(detalles);
+    }
+
+    /**
+     * Obtiene el identificador de la venta.
+     * 
+     * @return El identificador de la venta.
+     */
+    public int getIdVenta() {
+        return idVenta;
+    }
+
+    /**
+     * Obtiene el identificador del cliente.
+     * 
+     * @return El identificador del cliente.
+     */
+    public int getIdCliente() {
+        return idCliente;
+    }
+
+    /**
+     * Obtiene el total cobrado.
+     * 
+     * @return El total de la venta.
+     */
+    public double getTotal() {
+        return total;
+    }
+
+    /**
+     * Obtiene las líneas de la venta.
+     * 
+     * @return Las líneas, en una lista no modificable.
+     */
+    public List<DetalleVenta> getDetalles() {
+        return detalles;
+    }
+}
@@ -0,0 +1,97 @@
+package com.inventario.ventas;
+
+import java.time.LocalDateTime;
+
+/**
+ * Línea del listado resumen de ventas.
+ */
+public class ResumenVenta {
+    /** Identificador de la venta */
+    private final int idVenta;
+
+    /** Identificador del cliente */
+    private final int idCliente;
+
+    /** Nombre del cliente */
+    private final String nombreCliente;
+
+    /** Total guardado de la venta (0 si aún no se ha rellenado) */
+    private final double total;
+
+    /** Momento de la venta (null si no se ha consultado o no consta) */
+    private final LocalDateTime fecha;
+
+    /**
+     * Constructor de la clase.
+     * 
+     * @param idVenta       Id de la venta.
+     * @param idCliente     Id del cliente.
+     * @param nombreCliente Nombre del cliente.
+     * @param total         Total guardado de la venta.
+     */
+    public ResumenVenta(int idVenta, int idCliente, String nombreCliente, double total) {
+        this(idVenta, idCliente, nombreCliente, total, null);
+    }
+
+    /**
+     * Constructor de la clase.
+     * 
+     * @param idVenta       Id de la venta.
+     * @param idCliente     Id del cliente.
+     * @param nombreCliente Nombre del cliente.
+     * @param total         Total guardado de la venta.
+     * @param fecha         Momento de la venta.
+     */
+    public ResumenVenta(int idVenta, int idCliente, String nombreCliente, double total, LocalDateTime fecha) {
+        this.idVenta = idVenta;
+        this.idCliente = idCliente;
+        this.nombreCliente = nombreCliente;
+        this.total = total;
+        this.fecha = fecha;
+    }
+
+    /**
+     * Obtiene el identificador de la venta.
+     * 
+     * @return El identificador de la venta.
+     */
+    public int getIdVenta() {
+        return idVenta;
+    }
+
+    /**
+     * Obtiene el identificador del cliente.
+     * 
+     * @return El identificador del cliente.
+     */
+    public int getIdCliente() {
+        return idCliente;
+    }
+
+    /**
+     * Obtiene el nombre del cliente.
+     * 
+     * @return El nombre del cliente.
+     */
+    public String getNombreCliente() {
+        return nombreCliente;
+    }
+
+    /**
+     * Obtiene el total guardado de la venta.
+     * 
+     * @return El total de la venta.
+     */
+    public double getTotal() {
+        return total;
+    }
+
+    /**
+     * Obtiene el momento de la venta.
+     * 
+     * @return La fecha, o null si no consta.
+     */
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+}
@@ -0,0 +1,160 @@
+package com.inventario.ventas;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.inventario.bbdd.ConexionBBDD;
+import com.inventario.bbdd.ReintentoBBDD;
+import com.inventario.clientes.ClientesBBDD;
+import com.inventario.excepciones.DatoInvalidoException;
+import com.inventario.metricas.Metricas;
+import com.inventario.metricas.Operacion;
+import com.inventario.productos.MotorStock;
+import com.inventario.productos.ProductosBBDD;
+
+/**
+ * Registro de ventas sin interacción con el usuario, para integraciones,
+ * pruebas de carga o varios hilos a la vez.
+ * <p>
+ * No guarda estado: cada llamada usa su propia conexión del pool y su propia
+ * transacción, así que se puede llamar desde cualquier número de hilos.
+ */
+public class ServicioVentas {
+
+    /** Métricas de registrarVenta (transacción completa, con reintentos). */
+    private static final Operacion OP_REGISTRAR = Metricas.operacion("ServicioVentas.registrarVenta");
+
+    /** Métricas de anularVenta (transacción completa, con reintentos). */
+    private static final Operacion OP_ANULAR = Metricas.operacion("ServicioVentas.anularVenta");
+
+    /**
+     * Registra una venta en una única transacción corta: cobra al cliente,
+     * inserta la cabecera con su total, registra las líneas descontando el stock y confirma.
+     * Si la transacción choca con otra (interbloqueo, espera de bloqueo o, con
+     * {@code stock.modo=optimista}, stock cambiado entre la lectura y el
+     * descuento) se repite entera.
+     * <p>
+     * El cliente se bloquea antes que los productos, y estos en orden de ID, de
+     * modo que todas las ventas toman los bloqueos en el mismo orden.
+     *
+     * @param idCliente El ID del cliente.
+     * @param detalles  Las líneas de la venta (producto, cantidad y precio
+     *                  unitario).
+     * @return El recibo con el ID de la venta y el total cobrado.
+     * @throws SQLException          Si ocurre un error al interactuar con la
+     *                               base de datos, falta stock o el cliente no
+     *                               tiene saldo. No se guarda nada de la venta.
+     * @throws DatoInvalidoException Si la venta no tiene líneas.
+     */
+    public static Recibo registrarVenta(int idCliente, List<DetalleVenta> detalles)
+            throws SQLException, DatoInvalidoException {
+        if (detalles == null || detalles.isEmpty()) {
+            throw new DatoInvalidoException("La venta no tiene líneas.");
+        }
+        long inicio = System.nanoTime();
+        List<DetalleVenta> lineas = List.copyOf(detalles);
+
+        double totalVenta = calcularTotal(lineas);
+
+        int idVenta = ReintentoBBDD.ejecutar(() -> {
+            try (Connection con = ConexionBBDD.obtenerConexion()) {
+                con.setAutoCommit(false);
+                try {
+                    VentasBBDD.cobrarCliente(con, idCliente, totalVenta);
+                    int id = VentasBBDD.insertarCabeceraVenta(con, idCliente, totalVenta);
+                    VentasBBDD.procesarDetalles(con, id, lineas);
+                    con.commit();
+                    ClientesBBDD.invalidarCache(idCliente);
+                    descartarProductos(lineas);
+                    return id;
+                } catch (SQLException e) {
+                    con.rollback();
+                    throw e;
+                }
+            }
+        });
+
+        List<DetalleVenta> detallesRecibo = new ArrayList<>(lineas.size());
+        for (DetalleVenta detalle : lineas) {
+            detallesRecibo.add(new DetalleVenta(idVenta, detalle.getIdProducto(), detalle.getCantidad(),
+                    detalle.getPrecioUnitario()));
+        }
+        OP_REGISTRAR.registrar(inicio, lineas.size());
+        return new Recibo(idVenta, idCliente, totalVenta, detallesRecibo);
+    }
+
+    /**
+     * Anula una venta ya confirmada con una transacción de compensación: devuelve
+     * el importe al cliente, repone el stock y borra la venta con sus líneas.
+     * Sigue el mismo orden de bloqueos que {@link #registrarVenta}.
+     *
+     * @param recibo El recibo de la venta.
+     * @return true si la venta existía y se ha anulado; false si ya no existía.
+     * @throws SQLException Si ocurre un error al interactuar con la base de
+     *                      datos. No se deshace nada de la venta.
+     */
+    public static boolean anularVenta(Recibo recibo) throws SQLException {
+        long inicio = System.nanoTime();
+        Map<Integer, Integer> cantidades = new TreeMap<>();
+        for (DetalleVenta detalle : recibo.getDetalles()) {
+            cantidades.merge(detalle.getIdProducto(), detalle.getCantidad(), Integer::sum);
+        }
+
+        boolean anulada = ReintentoBBDD.ejecutar(() -> {
+            try (Connection con = ConexionBBDD.obtenerConexion()) {
+                con.setAutoCommit(false);
+                try {
+                    VentasBBDD.reembolsarCliente(con, recibo.getIdCliente(), recibo.getTotal());
+                    if (!VentasBBDD.eliminarVenta(con, recibo.getIdVenta())) {
+                        // Ya se había borrado: no se devuelve nada dos veces
+                        con.rollback();
+                        return false;
+                    }
+                    MotorStock.reponerVarios(con, cantidades);
+                    con.commit();
+                    ClientesBBDD.invalidarCache(recibo.getIdCliente());
+                    for (Integer idProducto : cantidades.keySet()) {
+                        ProductosBBDD.invalidarCache(idProducto);
+                    }
+                    return true;
+                } catch (SQLException e) {
+                    con.rollback();
+                    throw e;
+                }
+            }
+        });
+
+        OP_ANULAR.registrar(inicio, recibo.getDetalles().size());
+        return anulada;
+    }
+
+    /**
+     * Descarta de la caché los productos de una venta ya confirmada, para que
+     * la siguiente lectura vea el stock descontado.
+     *
+     * @param lineas Las líneas de la venta.
+     */
+    private static void descartarProductos(List<DetalleVenta> lineas) {
+        for (DetalleVenta detalle : lineas) {
+            ProductosBBDD.invalidarCache(detalle.getIdProducto());
+        }
+    }
+
+    /**
+     * Calcula el total de unas líneas de venta.
+     *
+     * @param detalles Las líneas.
+     * @return La suma de cantidad por precio unitario.
+     */
+    public static double calcularTotal(List<DetalleVenta> detalles) {
+        double total = 0.0;
+        for (DetalleVenta detalle : detalles) {
+            total += detalle.getCantidad() * detalle.getPrecioUnitario();
+        }
+        return total;
+    }
+}
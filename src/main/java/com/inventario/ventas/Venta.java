@@ -1,7 +1,13 @@
 package com.inventario.ventas;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
- * Clase que representa una venta.
+ * Clase que representa una venta, con sus líneas cuando se ha cargado con
+ * {@link VentasBBDD#cargarVentas(int, int)}.
  */
 public class Venta {
     /** Identificador de la venta */
@@ -10,6 +16,15 @@ public class Venta {
     /** Identificador del cliente */
     private int idCliente;
 
+    /** Total guardado de la venta; null si no está calculado */
+    private Double total;
+
+    /** Momento en que se registró la venta; null si es anterior a la columna */
+    private LocalDateTime fecha;
+
+    /** Líneas de la venta */
+    private final List<DetalleVenta> detalles = new ArrayList<>();
+
     /**
      * Constructor de la clase.
      * 
@@ -66,4 +81,66 @@ public class Venta {
         this.idCliente = idCliente;
     }
 
+    /**
+     * Obtiene el total de la venta: el guardado o, si no lo está, la suma de
+     * sus líneas.
+     * 
+     * @return El total de la venta.
+     */
+    public double getTotal() {
+        if (total != null) {
+            return total;
+        }
+        double suma = 0.0;
+        for (DetalleVenta detalle : detalles) {
+            suma += detalle.getCantidad() * detalle.getPrecioUnitario();
+        }
+        return suma;
+    }
+
+    /**
+     * Establece el total guardado de la venta.
+     * 
+     * @param total El total, o null si no está calculado.
+     */
+    public void setTotal(Double total) {
+        this.total = total;
+    }
+
+    /**
+     * Obtiene el momento en que se registró la venta.
+     * 
+     * @return La fecha, o null si la venta es anterior a la columna fecha.
+     */
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    /**
+     * Establece el momento en que se registró la venta.
+     * 
+     * @param fecha La fecha.
+     */
+    public void setFecha(LocalDateTime fecha) {
+        this.fecha = fecha;
+    }
+
+    /**
+     * Obtiene las líneas de la venta.
+     * 
+     * @return Las líneas, en solo lectura.
+     */
+    public List<DetalleVenta> getDetalles() {
+        return Collections.unmodifiableList(detalles);
+    }
+
+    /**
+     * Añade una línea a la venta.
+     * 
+     * @param detalle La línea.
+     */
+    public void agregarDetalle(DetalleVenta detalle) {
+        detalles.add(detalle);
+    }
+
 }
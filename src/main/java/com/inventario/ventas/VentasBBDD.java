@@ -1,15 +1,31 @@
 package com.inventario.ventas;
 
-import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
-import java.sql.Types;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import com.inventario.bbdd.ConexionBBDD;
+import com.inventario.bbdd.GestionBBDD;
+import com.inventario.bbdd.Pagina;
+import com.inventario.excepciones.DatoInvalidoException;
+import com.inventario.metricas.Metricas;
+import com.inventario.metricas.Operacion;
+import com.inventario.productos.MotorStock;
+import com.inventario.util.MapaEnteros;
 
 /**
  * Clase para gestionar las ventas en la BBDD
@@ -18,119 +34,496 @@ import com.inventario.bbdd.ConexionBBDD;
  */
 public class VentasBBDD {
 
+    /** Métricas de obtenerPaginaResumen. */
+    private static final Operacion OP_PAGINA = Metricas.operacion("VentasBBDD.obtenerPaginaResumen");
+
+    /** Métricas de obtenerResumenPorRango. */
+    private static final Operacion OP_RANGO = Metricas.operacion("VentasBBDD.obtenerResumenPorRango");
+
+    /** Métricas de obtenerIngresosPorDia. */
+    private static final Operacion OP_INGRESOS = Metricas.operacion("VentasBBDD.obtenerIngresosPorDia");
+
+    /** Métricas de obtenerFichaVenta. */
+    private static final Operacion OP_DETALLES = Metricas.operacion("VentasBBDD.obtenerFichaVenta");
+
+    /** Métricas de cada consulta de cargarVentas. */
+    private static final Operacion OP_CARGAR = Metricas.operacion("VentasBBDD.cargarVentas");
+
+    /** Métricas de cada tramo de rellenarTotales. */
+    private static final Operacion OP_RELLENAR = Metricas.operacion("VentasBBDD.rellenarTotales");
+
+    /** Métricas de cada tramo de verificarTotales. */
+    private static final Operacion OP_VERIFICAR = Metricas.operacion("VentasBBDD.verificarTotales");
+
+    /** Métricas de insertarCabeceraVenta. */
+    private static final Operacion OP_CABECERA = Metricas.operacion("VentasBBDD.insertarCabeceraVenta");
+
+    /** Métricas de procesarDetalles (y de cada una de sus sentencias). */
+    private static final Operacion OP_PROCESAR = Metricas.operacion("VentasBBDD.procesarDetalles");
+
+    /** Métricas de cobrarCliente. */
+    private static final Operacion OP_COBRAR = Metricas.operacion("VentasBBDD.cobrarCliente");
+
+    /** Métricas de reembolsarCliente. */
+    private static final Operacion OP_REEMBOLSAR = Metricas.operacion("VentasBBDD.reembolsarCliente");
+
+    /** Métricas de eliminarVenta. */
+    private static final Operacion OP_ELIMINAR = Metricas.operacion("VentasBBDD.eliminarVenta");
+
     /**
-     * Imprime el resumen de ventas (JOIN con Cliente).
+     * Obtiene una página del resumen de ventas (JOIN con Cliente), de la más
+     * reciente a la más antigua, paginando por ID de venta.
+     *
+     * @param referencia    ID de venta de referencia ({@link Pagina#INICIO}
+     *                      para la primera página).
+     * @param haciaAdelante true para las ventas más antiguas que la referencia,
+     *                      false para las más recientes.
+     * @param tamano        Número de ventas por página.
+     * @return La página de ventas.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static Pagina<ResumenVenta> obtenerPaginaResumen(int referencia, boolean haciaAdelante, int tamano)
+            throws SQLException {
+        String sql = "SELECT v.id_venta, v.id_cliente, c.nombre, v.total "
+                + "FROM venta v JOIN cliente c ON v.id_cliente = c.id_cliente";
+
+        return GestionBBDD.cargarPagina(sql, "v.id_venta", true, referencia, haciaAdelante, tamano,
+                rs -> new ResumenVenta(
+                        rs.getInt("id_venta"),
+                        rs.getInt("id_cliente"),
+                        rs.getString("nombre"),
+                        rs.getDouble("total")),
+                OP_PAGINA);
+    }
+
+    /**
+     * Obtiene el resumen de las ventas registradas en un intervalo de tiempo
+     * (JOIN con Cliente), recorriendo solo ese tramo del índice por fecha.
      * 
+     * @param desde Inicio del intervalo (incluido).
+     * @param hasta Fin del intervalo (excluido).
+     * @return Las ventas del intervalo, de la más antigua a la más reciente.
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      */
-    public static void imprimirResumenVentas() throws SQLException {
-        String sql = "SELECT v.id_venta, v.id_cliente, c.nombre "
+    public static List<ResumenVenta> obtenerResumenPorRango(LocalDateTime desde, LocalDateTime hasta)
+            throws SQLException {
+        long inicio = Metricas.iniciar();
+        String sql = "SELECT v.id_venta, v.id_cliente, c.nombre, v.total, v.fecha "
                 + "FROM venta v JOIN cliente c ON v.id_cliente = c.id_cliente "
-                + "ORDER BY v.id_venta DESC";
-        boolean hayResultados = false;
-
-        System.out.println("\n--- LISTADO DE VENTAS (RESUMEN) ---");
+                + "WHERE v.fecha >= ? AND v.fecha < ? "
+                + "ORDER BY v.fecha, v.id_venta";
+        List<ResumenVenta> ventas = new ArrayList<>();
 
         try (Connection con = ConexionBBDD.obtenerConexion();
-                Statement st = con.createStatement();
-                ResultSet rs = st.executeQuery(sql)) {
-
-            System.out.printf("%-5s | %-10s | %s\n", "ID VTA", "ID CLI", "CLIENTE");
-            System.out.println("----------------------------------------------");
+                PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setTimestamp(1, Timestamp.valueOf(desde));
+            ps.setTimestamp(2, Timestamp.valueOf(hasta));
 
-            while (rs.next()) {
-                hayResultados = true;
-                System.out.printf("%-5d | %-10d | %s\n",
-                        rs.getInt("id_venta"),
-                        rs.getInt("id_cliente"),
-                        rs.getString("nombre"));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ventas.add(new ResumenVenta(
+                            rs.getInt("id_venta"),
+                            rs.getInt("id_cliente"),
+                            rs.getString("nombre"),
+                            rs.getDouble("total"),
+                            rs.getTimestamp("fecha").toLocalDateTime()));
+                }
             }
+        }
+        OP_RANGO.registrar(inicio, sql, 2, ventas.size());
+        return ventas;
+    }
 
-            if (!hayResultados) {
-                System.out.println("No hay ventas registradas.");
+    /**
+     * Suma los ingresos de cada día de un intervalo. La consulta se resuelve
+     * solo con el índice {@code idx_venta_fecha (fecha, total)}, sin leer las
+     * filas de las ventas.
+     * 
+     * @param desde Primer día (incluido).
+     * @param hasta Último día (incluido).
+     * @return Los ingresos de cada día con ventas, en orden de fecha.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static Map<LocalDate, Double> obtenerIngresosPorDia(LocalDate desde, LocalDate hasta)
+            throws SQLException {
+        long inicio = Metricas.iniciar();
+        String sql = "SELECT DATE(fecha) AS dia, COALESCE(SUM(total), 0) AS ingresos FROM venta "
+                + "WHERE fecha >= ? AND fecha < ? "
+                + "GROUP BY DATE(fecha) ORDER BY dia";
+        Map<LocalDate, Double> ingresos = new LinkedHashMap<>();
+
+        try (Connection con = ConexionBBDD.obtenerConexion();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setTimestamp(1, Timestamp.valueOf(desde.atStartOfDay()));
+            ps.setTimestamp(2, Timestamp.valueOf(hasta.plusDays(1).atStartOfDay()));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ingresos.put(rs.getDate("dia").toLocalDate(), rs.getDouble("ingresos"));
+                }
             }
         }
+        OP_INGRESOS.registrar(inicio, sql, 2, ingresos.size());
+        return ingresos;
     }
 
     /**
-     * Imprime el detalle de una venta (JOIN con Producto).
+     * Obtiene el detalle de una venta (JOIN con Producto) con una sola consulta.
+     * El total es el guardado en la cabecera; las líneas se suman en la misma
+     * pasada para comprobarlo o, si la venta aún no tiene total, para usarlo en
+     * su lugar.
      * 
+     * @param idVenta El ID de la venta.
+     * @return La ficha de la venta; sin líneas si la venta no existe.
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      */
-    public static boolean imprimirDetallesVenta(int idVenta) throws SQLException {
-        String sql = "SELECT d.cantidad, d.precio_unitario, p.nombre "
-                + "FROM DetalleVenta d JOIN producto p ON d.id_producto = p.id_producto "
-                + "WHERE d.id_venta = ?";
-        boolean hayDetalles = false;
+    public static FichaVenta obtenerFichaVenta(int idVenta) throws SQLException {
+        long inicio = Metricas.iniciar();
+        String sql = "SELECT v.total, d.id_producto, p.nombre, d.cantidad, d.precio_unitario "
+                + "FROM venta v LEFT JOIN (DetalleVenta d JOIN producto p ON d.id_producto = p.id_producto) "
+                + "ON d.id_venta = v.id_venta "
+                + "WHERE v.id_venta = ?";
+        List<FichaVenta.Linea> lineas = new ArrayList<>();
+        double sumaLineas = 0.0;
+        Double guardado = null;
 
         try (Connection con = ConexionBBDD.obtenerConexion();
                 PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, idVenta);
 
             try (ResultSet rs = ps.executeQuery()) {
-
                 while (rs.next()) {
-                    if (!hayDetalles) {
-                        hayDetalles = true;
-                        System.out.printf("%-25s | %-10s | %-10s | %s\n", "PRODUCTO", "CANTIDAD", "PRECIO U.",
-                                "SUBTOTAL");
-                        System.out.println("---------------------------------------------------------------");
-                    }
+                    double total = rs.getDouble("total");
+                    guardado = rs.wasNull() ? null : total;
 
-                    int cantidad = rs.getInt("cantidad");
-                    double precio = rs.getDouble("precio_unitario");
-                    System.out.printf("%-25s | %-10d | %-10.2f | %.2f\n",
+                    int idProducto = rs.getInt("id_producto");
+                    if (rs.wasNull()) {
+                        continue; // Venta sin líneas
+                    }
+                    FichaVenta.Linea linea = new FichaVenta.Linea(
+                            idProducto,
                             rs.getString("nombre"),
-                            cantidad,
-                            precio,
-                            (cantidad * precio));
+                            rs.getInt("cantidad"),
+                            rs.getDouble("precio_unitario"));
+                    lineas.add(linea);
+                    sumaLineas += linea.getSubtotal();
                 }
             }
         }
+        OP_DETALLES.registrar(inicio, sql, 1, lineas.size());
+
+        return new FichaVenta(idVenta, lineas, guardado != null ? guardado : sumaLineas, sumaLineas);
+    }
+
+    /**
+     * Imprime las líneas de la ficha de una venta.
+     * 
+     * @param ficha La ficha de la venta.
+     */
+    public static void imprimirLineas(FichaVenta ficha) {
+        if (ficha.estaVacia()) {
+            System.out.println("No se encontraron detalles para la venta ID " + ficha.getIdVenta());
+            return;
+        }
 
-        if (!hayDetalles) {
-            System.out.println("No se encontraron detalles para la venta ID " + idVenta);
+        System.out.printf("%-25s | %-10s | %-10s | %s\n", "PRODUCTO", "CANTIDAD", "PRECIO U.", "SUBTOTAL");
+        System.out.println("---------------------------------------------------------------");
+        for (FichaVenta.Linea linea : ficha.getLineas()) {
+            System.out.printf("%-25s | %-10d | %-10.2f | %.2f\n",
+                    linea.getNombreProducto(),
+                    linea.getCantidad(),
+                    linea.getPrecioUnitario(),
+                    linea.getSubtotal());
         }
-        return hayDetalles; // Devuelve si se imprimió algo
     }
 
     /**
-     * Calcula el total de una venta (usando la Función).
+     * Carga las ventas de un rango de IDs con todas sus líneas, con dos
+     * consultas en total: una para las cabeceras y otra para las líneas de
+     * todo el rango. Las líneas se reparten entre sus ventas en una sola
+     * pasada.
      * 
+     * @param desde Primer ID de venta (incluido).
+     * @param hasta Último ID de venta (incluido).
+     * @return Las ventas del rango con sus líneas, en orden de ID.
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      */
-    public static double calcularTotalVenta(int idVenta) throws SQLException {
-        double total = 0.0;
-        String sql = "{? = CALL CalcularTotalVenta(?)}";
+    public static List<Venta> cargarVentas(int desde, int hasta) throws SQLException {
+        String sqlVentas = "SELECT id_venta, id_cliente, total, fecha FROM venta "
+                + "WHERE id_venta BETWEEN ? AND ? ORDER BY id_venta";
+        String sqlLineas = "SELECT id_detalle, id_venta, id_producto, cantidad, precio_unitario "
+                + "FROM DetalleVenta WHERE id_venta BETWEEN ? AND ?";
+        List<Venta> ventas = new ArrayList<>();
 
-        try (Connection con = ConexionBBDD.obtenerConexion();
-                CallableStatement cs = con.prepareCall(sql)) {
-            cs.registerOutParameter(1, Types.DECIMAL);
+        try (Connection con = ConexionBBDD.obtenerConexion()) {
+            long inicio = Metricas.iniciar();
+            try (PreparedStatement ps = con.prepareStatement(sqlVentas)) {
+                ps.setInt(1, desde);
+                ps.setInt(2, hasta);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        ventas.add(leerVenta(rs));
+                    }
+                }
+            }
+            OP_CARGAR.registrar(inicio, sqlVentas, 2, ventas.size());
+
+            if (ventas.isEmpty()) {
+                return ventas;
+            }
+            MapaEnteros<Venta> porId = indexar(ventas);
+
+            inicio = Metricas.iniciar();
+            int filas = 0;
+            try (PreparedStatement ps = con.prepareStatement(sqlLineas)) {
+                ps.setInt(1, desde);
+                ps.setInt(2, hasta);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        filas++;
+                        try {
+                            agregarLinea(porId, leerLinea(rs), rs.getInt("id_venta"));
+                        } catch (DatoInvalidoException e) {
+                            System.err.println("ERROR de datos en la línea " + rs.getInt("id_detalle") + ": "
+                                    + e.getMessage() + ". Este registro ha sido OMITIDO.");
+                        }
+                    }
+                }
+            }
+            OP_CARGAR.registrar(inicio, sqlLineas, 2, filas);
+        }
+        return ventas;
+    }
+
+    /**
+     * Carga un conjunto de ventas con todas sus líneas. Por cada tramo de
+     * {@code db.lectura.tamanoIn} IDs se hacen dos consultas {@code IN (...)}:
+     * una para las cabeceras y otra para las líneas, que se reparten entre sus
+     * ventas en una sola pasada.
+     * 
+     * @param ids Los IDs de las ventas; los que no existen se ignoran.
+     * @return Las ventas encontradas con sus líneas, en orden de ID.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static List<Venta> cargarVentas(Collection<Integer> ids) throws SQLException {
+        List<Venta> ventas = new ArrayList<>(ids.size());
+        GestionBBDD.recorrerPorIds("SELECT id_venta, id_cliente, total, fecha FROM venta", "id_venta", ids,
+                VentasBBDD::leerVenta, (venta, idVenta) -> ventas.add(venta), OP_CARGAR);
+        if (ventas.isEmpty()) {
+            return ventas;
+        }
+
+        ventas.sort(Comparator.comparingInt(Venta::getId));
+        MapaEnteros<Venta> porId = indexar(ventas);
+        List<Integer> encontradas = new ArrayList<>(ventas.size());
+        for (Venta venta : ventas) {
+            encontradas.add(venta.getId());
+        }
+
+        GestionBBDD.recorrerPorIds(
+                "SELECT id_detalle, id_venta, id_producto, cantidad, precio_unitario FROM DetalleVenta",
+                "id_venta", encontradas, VentasBBDD::leerLinea,
+                (linea, idVenta) -> agregarLinea(porId, linea, idVenta), OP_CARGAR);
+        return ventas;
+    }
+
+    /**
+     * Lee la cabecera de una venta de la fila actual.
+     * 
+     * @param rs El resultado con id_venta, id_cliente, total y fecha.
+     * @return La venta, sin líneas.
+     * @throws SQLException Si ocurre un error al leer la fila.
+     */
+    private static Venta leerVenta(ResultSet rs) throws SQLException {
+        Venta venta = new Venta(rs.getInt("id_venta"), rs.getInt("id_cliente"));
+        double total = rs.getDouble("total");
+        venta.setTotal(rs.wasNull() ? null : total);
+        Timestamp fecha = rs.getTimestamp("fecha");
+        venta.setFecha(fecha != null ? fecha.toLocalDateTime() : null);
+        return venta;
+    }
+
+    /**
+     * Lee una línea de venta de la fila actual.
+     * 
+     * @param rs El resultado con las columnas de DetalleVenta.
+     * @return La línea.
+     * @throws SQLException          Si ocurre un error al leer la fila.
+     * @throws DatoInvalidoException Si la cantidad guardada no es válida.
+     */
+    private static DetalleVenta leerLinea(ResultSet rs) throws SQLException, DatoInvalidoException {
+        return new DetalleVenta(
+                rs.getInt("id_detalle"),
+                rs.getInt("id_venta"),
+                rs.getInt("id_producto"),
+                rs.getInt("cantidad"),
+                rs.getDouble("precio_unitario"));
+    }
+
+    /**
+     * Indexa unas ventas por su ID.
+     * 
+     * @param ventas Las ventas.
+     * @return Las ventas por ID.
+     */
+    private static MapaEnteros<Venta> indexar(List<Venta> ventas) {
+        MapaEnteros<Venta> porId = new MapaEnteros<>(ventas.size());
+        for (Venta venta : ventas) {
+            porId.guardar(venta.getId(), venta);
+        }
+        return porId;
+    }
 
-            cs.setInt(2, idVenta);
-            cs.execute();
+    /**
+     * Añade una línea a su venta. Las líneas de ventas que no se han cargado
+     * (por ejemplo, creadas entre las dos consultas) se ignoran.
+     * 
+     * @param porId   Las ventas cargadas por ID.
+     * @param linea   La línea.
+     * @param idVenta El ID de su venta.
+     */
+    private static void agregarLinea(MapaEnteros<Venta> porId, DetalleVenta linea, int idVenta) {
+        Venta venta = porId.obtener(idVenta);
+        if (venta != null) {
+            venta.agregarDetalle(linea);
+        }
+    }
+
+    /**
+     * Rellena el total de las ventas que no lo tienen guardado (las anteriores a
+     * la columna total). Recorre las ventas por tramos de ID de
+     * {@code db.lote.tamano} y confirma cada tramo por separado, para no
+     * bloquear toda la tabla.
+     * 
+     * @return Número de ventas rellenadas.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static int rellenarTotales() throws SQLException {
+        String sqlRango = "SELECT MIN(id_venta), MAX(id_venta) FROM venta WHERE total IS NULL";
+        String sql = "UPDATE venta v SET v.total = "
+                + "(SELECT COALESCE(SUM(d.cantidad * d.precio_unitario), 0) FROM DetalleVenta d "
+                + "WHERE d.id_venta = v.id_venta) "
+                + "WHERE v.total IS NULL AND v.id_venta BETWEEN ? AND ?";
+        int tramo = Math.max(1, ConexionBBDD.getPropiedadEntera("db.lote.tamano", 1000));
+        int rellenadas = 0;
+
+        try (Connection con = ConexionBBDD.obtenerConexion()) {
+            int[] rango = leerRango(con, sqlRango);
+            if (rango == null) {
+                return 0;
+            }
 
-            total = cs.getDouble(1);
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                for (long desde = rango[0]; desde <= rango[1]; desde += tramo) {
+                    long inicio = Metricas.iniciar();
+                    ps.setLong(1, desde);
+                    ps.setLong(2, Math.min(desde + tramo - 1, rango[1]));
+                    int filas = ps.executeUpdate();
+                    rellenadas += filas;
+                    OP_RELLENAR.registrar(inicio, sql, 2, filas);
+                }
+            }
         }
-        return total;
+        return rellenadas;
     }
 
     /**
-     * Inserta una nueva cabecera de venta con el ID del cliente proporcionado y
-     * devuelve
-     * el ID de la venta generada.
+     * Comprueba que el total guardado de cada venta coincide con la suma de sus
+     * líneas, por tramos de ID de {@code db.lote.tamano}.
+     * 
+     * @param corregir true para guardar el total correcto en las ventas que no
+     *                 coinciden.
+     * @return Los IDs de las ventas cuyo total no coincidía (o no estaba
+     *         calculado).
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static List<Integer> verificarTotales(boolean corregir) throws SQLException {
+        String sqlRango = "SELECT MIN(id_venta), MAX(id_venta) FROM venta";
+        String sql = "SELECT v.id_venta, COALESCE(SUM(d.cantidad * d.precio_unitario), 0) AS calculado "
+                + "FROM venta v LEFT JOIN DetalleVenta d ON d.id_venta = v.id_venta "
+                + "WHERE v.id_venta BETWEEN ? AND ? "
+                + "GROUP BY v.id_venta, v.total "
+                + "HAVING v.total IS NULL OR v.total <> calculado";
+        String sqlCorregir = "UPDATE venta SET total = ? WHERE id_venta = ?";
+        int tramo = Math.max(1, ConexionBBDD.getPropiedadEntera("db.lote.tamano", 1000));
+        List<Integer> distintas = new ArrayList<>();
+
+        try (Connection con = ConexionBBDD.obtenerConexion()) {
+            int[] rango = leerRango(con, sqlRango);
+            if (rango == null) {
+                return distintas;
+            }
+
+            try (PreparedStatement ps = con.prepareStatement(sql);
+                    PreparedStatement correccion = con.prepareStatement(sqlCorregir)) {
+                for (long desde = rango[0]; desde <= rango[1]; desde += tramo) {
+                    long inicio = Metricas.iniciar();
+                    int filas = 0;
+                    ps.setLong(1, desde);
+                    ps.setLong(2, Math.min(desde + tramo - 1, rango[1]));
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            filas++;
+                            distintas.add(rs.getInt("id_venta"));
+                            if (corregir) {
+                                correccion.setDouble(1, rs.getDouble("calculado"));
+                                correccion.setInt(2, rs.getInt("id_venta"));
+                                correccion.addBatch();
+                            }
+                        }
+                    }
+                    if (corregir && filas > 0) {
+                        correccion.executeBatch();
+                    }
+                    OP_VERIFICAR.registrar(inicio, sql, 2, filas);
+                }
+            }
+        }
+        return distintas;
+    }
+
+    /**
+     * Lee el menor y el mayor ID de una consulta {@code SELECT MIN(..), MAX(..)}.
+     * 
+     * @param con La conexión a la base de datos.
+     * @param sql La consulta.
+     * @return El rango {mínimo, máximo}, o null si no hay filas.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static int[] leerRango(Connection con, String sql) throws SQLException {
+        try (Statement st = con.createStatement();
+                ResultSet rs = st.executeQuery(sql)) {
+            if (rs.next()) {
+                int minimo = rs.getInt(1);
+                if (!rs.wasNull()) {
+                    return new int[] { minimo, rs.getInt(2) };
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Inserta una nueva cabecera de venta con su total ya calculado y devuelve
+     * el ID de la venta generada. La fecha la pone la base de datos (DEFAULT
+     * CURRENT_TIMESTAMP), así que todas las ventas usan el mismo reloj. El total debe coincidir con
+     * la suma de las líneas que se registren en la misma transacción.
      * 
      * @param con       La conexión a la base de datos.
      * @param idCliente El ID del cliente.
+     * @param total     El total de la venta.
      * @return El ID de la venta generada.
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      */
-    public static int insertarCabeceraVenta(Connection con, int idCliente) throws SQLException {
+    public static int insertarCabeceraVenta(Connection con, int idCliente, double total) throws SQLException {
+        long inicio = Metricas.iniciar();
         int idVenta = -1;
-        String sql = "INSERT INTO venta (id_cliente) VALUES (?)";
+        String sql = "INSERT INTO venta (id_cliente, total) VALUES (?, ?)";
 
         try (PreparedStatement ps = con.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
             ps.setInt(1, idCliente);
+            ps.setDouble(2, total);
             if (ps.executeUpdate() > 0) {
                 try (ResultSet rs = ps.getGeneratedKeys()) {
                     if (rs.next()) {
@@ -143,50 +536,134 @@ public class VentasBBDD {
         if (idVenta == -1) {
             throw new SQLException("Error al obtener el ID de la venta generada.");
         }
+        OP_CABECERA.registrar(inicio, sql, 2, 1);
         return idVenta;
     }
 
     /**
-     * Procesa una lista de detalles de venta y devuelve el total de la venta.
-     * 
+     * Registra las líneas de una venta y descuenta su stock con un número fijo
+     * de sentencias, sea cual sea el número de líneas:
+     * <ol>
+     * <li>Un UPDATE condicional que descuenta el stock de todos los productos
+     * solo donde alcanza ({@link MotorStock#descontarVarios}).</li>
+     * <li>Un INSERT de varias filas en DetalleVenta.</li>
+     * </ol>
+     * Si algún producto no se ha podido descontar se deshace el UPDATE, se lee
+     * el stock y se informa de la primera línea que falla igual que antes
+     * ("Stock insuficiente" o "Producto no encontrado"). Si al leerlo sí
+     * alcanza, es que otra venta lo ha cambiado entre medias y se lanza un error
+     * con SQLSTATE 40001 para que {@link com.inventario.bbdd.ReintentoBBDD}
+     * repita la transacción entera. La conexión debe estar en una transacción
+     * (sin autocommit).
+     *
      * @param con      La conexión a la base de datos.
      * @param idVenta  El ID de la venta.
      * @param detalles La lista de detalles de la venta.
      * @return El total de la venta.
-     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos,
+     *                      falta stock o el stock ha cambiado (SQLSTATE 40001).
      */
     public static double procesarDetalles(Connection con, int idVenta, List<DetalleVenta> detalles)
             throws SQLException {
+        if (detalles.isEmpty()) {
+            return 0.0;
+        }
+        long inicio = Metricas.iniciar();
+
+        // Cantidad total por producto, en orden de ID
+        Map<Integer, Integer> cantidades = new TreeMap<>();
         double totalVenta = 0.0;
-        // El SP ahora se encarga de: insertar DetalleVenta + actualizar Stock
-        String sqlSP = "{CALL RegistrarDetalleVenta(?, ?, ?, ?, ?)}";
+        for (DetalleVenta detalle : detalles) {
+            cantidades.merge(detalle.getIdProducto(), detalle.getCantidad(), Integer::sum);
+            totalVenta += detalle.getCantidad() * detalle.getPrecioUnitario();
+        }
+
+        Savepoint antesDelStock = con.setSavepoint();
+        if (!MotorStock.descontarVarios(con, cantidades)) {
+            con.rollback(antesDelStock);
+            validarLineas(detalles, MotorStock.leerStock(con, cantidades.keySet()));
+            // Había stock al leerlo: otra venta lo ha cambiado entre medias
+            throw new SQLException("El stock ha cambiado durante la venta.", "40001");
+        }
+
+        // Las líneas se insertan en el mismo orden en que se han bloqueado los productos
+        List<DetalleVenta> ordenadas = new ArrayList<>(detalles);
+        ordenadas.sort(Comparator.comparingInt(DetalleVenta::getIdProducto));
+        insertarLineas(con, idVenta, ordenadas);
+        OP_PROCESAR.registrar(inicio, detalles.size());
+        return totalVenta;
+    }
+
+    /**
+     * Comprueba las líneas en orden contra el stock, acumulando las cantidades
+     * de un mismo producto, y lanza el error de la primera que no cabe.
+     *
+     * @param detalles Las líneas de la venta.
+     * @param stock    El stock de cada producto existente.
+     * @throws SQLException Si alguna línea no tiene producto o stock suficiente.
+     */
+    private static void validarLineas(List<DetalleVenta> detalles, Map<Integer, Integer> stock)
+            throws SQLException {
+        Map<Integer, Integer> usado = new HashMap<>();
+        for (DetalleVenta detalle : detalles) {
+            Integer disponible = stock.get(detalle.getIdProducto());
+            int acumulado = usado.merge(detalle.getIdProducto(), detalle.getCantidad(), Integer::sum);
+
+            if (disponible == null || disponible < acumulado) {
+                String error = (disponible == null) ? "Producto no encontrado" : "Stock insuficiente";
+                throw new SQLException("Error en producto ID " + detalle.getIdProducto() + ": " + error);
+            }
+        }
+    }
+
+    /**
+     * Inserta todas las líneas de la venta con un único INSERT.
+     *
+     * @param con      La conexión con la transacción de la venta.
+     * @param idVenta  El ID de la venta.
+     * @param detalles Las líneas de la venta.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    private static void insertarLineas(Connection con, int idVenta, List<DetalleVenta> detalles)
+            throws SQLException {
+        long inicio = Metricas.iniciar();
+        String sql = "INSERT INTO DetalleVenta (id_venta, id_producto, cantidad, precio_unitario) VALUES "
+                + marcas(detalles.size(), "(?, ?, ?, ?)");
 
-        try (CallableStatement cs = con.prepareCall(sqlSP)) {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            int i = 1;
             for (DetalleVenta detalle : detalles) {
-                double subtotal = detalle.getCantidad() * detalle.getPrecioUnitario();
-
-                cs.setInt(1, idVenta);
-                cs.setInt(2, detalle.getIdProducto());
-                cs.setInt(3, detalle.getCantidad());
-                cs.setDouble(4, detalle.getPrecioUnitario());
-                cs.registerOutParameter(5, Types.INTEGER);
-                cs.execute();
-
-                int estado = cs.getInt(5);
-
-                if (estado == 1) {
-                    totalVenta += subtotal;
-                } else {
-                    String error = (estado == -1) ? "Stock insuficiente" : "Producto no encontrado";
-                    throw new SQLException("Error en producto ID " + detalle.getIdProducto() + ": " + error);
-                }
+                ps.setInt(i++, idVenta);
+                ps.setInt(i++, detalle.getIdProducto());
+                ps.setInt(i++, detalle.getCantidad());
+                ps.setDouble(i++, detalle.getPrecioUnitario());
             }
+            int filas = ps.executeUpdate();
+            OP_PROCESAR.registrarSentencia(inicio, sql, 4 * detalles.size(), filas);
         }
-        return totalVenta;
     }
 
     /**
-     * Actualiza el saldo del cliente en la BBDD.
+     * Repite un grupo de marcas de parámetro separado por comas.
+     *
+     * @param veces Número de repeticiones.
+     * @param grupo Grupo a repetir, por ejemplo "?" o "(?, ?)".
+     * @return Los grupos separados por comas.
+     */
+    private static String marcas(int veces, String grupo) {
+        StringBuilder sb = new StringBuilder(veces * (grupo.length() + 2));
+        for (int i = 0; i < veces; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(grupo);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Actualiza el saldo del cliente en la BBDD. Quien confirma la transacción
+     * descarta después el cliente de la caché.
      * 
      * @param con       La conexión a la base de datos.
      * @param idCliente El ID del cliente.
@@ -194,6 +671,7 @@ public class VentasBBDD {
      * @throws SQLException Si ocurre un error al interactuar con la base de datos.
      */
     public static void cobrarCliente(Connection con, int idCliente, double cantidad) throws SQLException {
+        long inicio = Metricas.iniciar();
         String sql = "UPDATE cliente SET dinero = dinero - ? WHERE id_cliente = ?";
         try (PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setDouble(1, cantidad);
@@ -204,5 +682,49 @@ public class VentasBBDD {
                 throw new SQLException("Error al actualizar saldo. Verifique cliente o fondos.");
             }
         }
+        OP_COBRAR.registrar(inicio, sql, 2, 1);
+    }
+
+    /**
+     * Devuelve al cliente el importe de una venta anulada. Quien confirma la
+     * transacción descarta después el cliente de la caché.
+     * 
+     * @param con       La conexión a la base de datos.
+     * @param idCliente El ID del cliente.
+     * @param cantidad  La cantidad a sumar al saldo del cliente.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos
+     *                      o el cliente ya no existe.
+     */
+    public static void reembolsarCliente(Connection con, int idCliente, double cantidad) throws SQLException {
+        long inicio = Metricas.iniciar();
+        String sql = "UPDATE cliente SET dinero = dinero + ? WHERE id_cliente = ?";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setDouble(1, cantidad);
+            ps.setInt(2, idCliente);
+            if (ps.executeUpdate() == 0) {
+                throw new SQLException("No se puede reembolsar: el cliente ID " + idCliente + " no existe.");
+            }
+        }
+        OP_REEMBOLSAR.registrar(inicio, sql, 2, 1);
+    }
+
+    /**
+     * Elimina una venta; sus líneas se borran en cascada.
+     * 
+     * @param con     La conexión a la base de datos.
+     * @param idVenta El ID de la venta.
+     * @return true si la venta existía.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public static boolean eliminarVenta(Connection con, int idVenta) throws SQLException {
+        long inicio = Metricas.iniciar();
+        String sql = "DELETE FROM venta WHERE id_venta = ?";
+        int filas;
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, idVenta);
+            filas = ps.executeUpdate();
+        }
+        OP_ELIMINAR.registrar(inicio, sql, 1, filas);
+        return filas > 0;
     }
-}
\ No newline at end of file
+}